@@ -0,0 +1,188 @@
+package com.multipedidos.proveedores.carga;
+
+import ch.qos.logback.classic.Level;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.multipedidos.proveedores.client.HttpPedidosTransporte;
+import com.multipedidos.proveedores.client.IntegradorPedidosTransporte;
+import com.multipedidos.proveedores.client.PedidosTransporte;
+import com.multipedidos.proveedores.config.PedidosClientConfig;
+import org.HdrHistogram.Histogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compara los transportes {@code http} e {@code integrador} del cliente del microservicio A.
+ *
+ * Cada transporte se arma con la misma configuración que en la aplicación y consulta pedidos
+ * distintos al stub manteniendo {@code concurrencia} llamadas en vuelo, como las que admite el
+ * bulkhead. Se descarta un período de calentamiento y se informa el throughput, los percentiles
+ * de latencia y las conexiones que el stub recibió de cada transporte, que muestran si las
+ * conexiones se reutilizan. La caché de pedidos y la capa de resiliencia no intervienen.
+ *
+ * Las opciones se pasan como {@code clave=valor}:
+ * {@code mvn -P carga -Dcodegen.skip=true verify -Dcarga.clase=com.multipedidos.proveedores.carga.ComparacionTransportes
+ * -Dcarga.args="concurrencia=64 duracion=30"}.
+ */
+public final class ComparacionTransportes {
+
+    private static final String RUTA_PEDIDO = "/api/pedidos/";
+
+    /**
+     * Opciones de una corrida.
+     */
+    public record Opciones(int duracion, int calentamiento, int concurrencia, int hilos, long latenciaStubMs,
+                           long variacionStubMs, List<String> transportes, String resultados) {
+
+        static Opciones leer(String[] args) {
+            Map<String, String> valores = new HashMap<>();
+            for (String arg : args) {
+                if (arg.contains("=")) {
+                    valores.put(arg.substring(0, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+                } else if (!arg.isBlank()) {
+                    throw new IllegalArgumentException("Opción inválida: " + arg + " (se espera clave=valor)");
+                }
+            }
+            return new Opciones(
+                    Integer.parseInt(valores.getOrDefault("duracion", "30")),
+                    Integer.parseInt(valores.getOrDefault("calentamiento", "10")),
+                    Integer.parseInt(valores.getOrDefault("concurrencia", "64")),
+                    Integer.parseInt(valores.getOrDefault("hilos", "8")),
+                    Long.parseLong(valores.getOrDefault("stub.latencia-ms", "20")),
+                    Long.parseLong(valores.getOrDefault("stub.variacion-ms", "10")),
+                    List.of(valores.getOrDefault("transportes", "http,integrador").split(",")),
+                    valores.getOrDefault("resultados", "target/carga-transportes.json"));
+        }
+    }
+
+    /**
+     * Resultado de un transporte en el período medido.
+     */
+    public record Medicion(String transporte, long llamadas, long errores, int conexiones, double porSegundo,
+                           double p50Ms, double p99Ms, double p999Ms, double maxMs) {
+    }
+
+    private ComparacionTransportes() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Opciones opciones = Opciones.leer(args);
+        // Sin Spring no se configura el logging y el nivel DEBUG por defecto de Logback distorsiona la medición
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        List<Medicion> mediciones = new ArrayList<>();
+        AtomicLong siguientePedido = new AtomicLong(1);
+        for (String transporte : opciones.transportes()) {
+            // Un stub por transporte para contar solo las conexiones de ese transporte
+            try (StubPedidosA stub = StubPedidosA.iniciar(opciones.latenciaStubMs(), opciones.variacionStubMs(), 0)) {
+                PedidosClientConfig config = new PedidosClientConfig();
+                ExecutorService pedidosExecutor = config.pedidosExecutor(opciones.hilos());
+                ExecutorService ioExecutor = config.pedidosIoExecutor(opciones.concurrencia());
+                try {
+                    PedidosTransporte cliente = switch (transporte.trim()) {
+                        case "http" -> new HttpPedidosTransporte(config.pedidosHttpClient(2000), objectMapper,
+                                pedidosExecutor, stub.getUrl(), RUTA_PEDIDO, "", Duration.ofSeconds(2));
+                        case "integrador" -> new IntegradorPedidosTransporte(objectMapper, stub.getUrl(), ioExecutor);
+                        default -> throw new IllegalArgumentException("Transporte desconocido: " + transporte);
+                    };
+                    System.out.printf("Transporte %s: calentamiento de %d s...%n", transporte, opciones.calentamiento());
+                    correr(cliente, opciones.concurrencia(), Duration.ofSeconds(opciones.calentamiento()), siguientePedido);
+                    int conexionesPrevias = stub.getConexiones();
+                    System.out.printf("Transporte %s: midiendo durante %d s con %d llamadas en vuelo...%n",
+                            transporte, opciones.duracion(), opciones.concurrencia());
+                    mediciones.add(medir(transporte, cliente, opciones, siguientePedido, stub, conexionesPrevias));
+                } finally {
+                    pedidosExecutor.shutdownNow();
+                    ioExecutor.shutdownNow();
+                }
+            }
+        }
+        imprimir(mediciones);
+        guardar(mediciones, opciones);
+    }
+
+    private static Medicion medir(String transporte, PedidosTransporte cliente, Opciones opciones,
+                                  AtomicLong siguientePedido, StubPedidosA stub, int conexionesPrevias)
+            throws InterruptedException {
+        long inicio = System.nanoTime();
+        Resultado resultado = correr(cliente, opciones.concurrencia(), Duration.ofSeconds(opciones.duracion()),
+                siguientePedido);
+        double segundos = (System.nanoTime() - inicio) / 1e9;
+        Histogram latencias = resultado.latencias();
+        return new Medicion(transporte, latencias.getTotalCount(), resultado.errores(),
+                stub.getConexiones() - conexionesPrevias, latencias.getTotalCount() / segundos,
+                ms(latencias, 50), ms(latencias, 99), ms(latencias, 99.9), latencias.getMaxValue() / 1000.0);
+    }
+
+    /**
+     * Mantiene {@code concurrencia} consultas en vuelo durante el tiempo indicado: cada
+     * respuesta libera el lugar para la siguiente.
+     */
+    private static Resultado correr(PedidosTransporte cliente, int concurrencia, Duration duracion,
+                                    AtomicLong siguientePedido) throws InterruptedException {
+        Histogram latencias = new Histogram(3);
+        AtomicLong errores = new AtomicLong();
+        Semaphore enVuelo = new Semaphore(concurrencia);
+        long fin = System.nanoTime() + duracion.toNanos();
+        while (System.nanoTime() < fin) {
+            enVuelo.acquire();
+            long inicio = System.nanoTime();
+            cliente.obtenerPedido(siguientePedido.getAndIncrement()).whenComplete((pedido, error) -> {
+                if (error != null) {
+                    errores.incrementAndGet();
+                } else {
+                    synchronized (latencias) {
+                        latencias.recordValue(Math.max(1, (System.nanoTime() - inicio) / 1000));
+                    }
+                }
+                enVuelo.release();
+            });
+        }
+        enVuelo.acquire(concurrencia);
+        return new Resultado(latencias, errores.get());
+    }
+
+    private static void imprimir(List<Medicion> mediciones) {
+        System.out.printf("%n%-12s %10s %8s %10s %10s %10s %10s %10s %10s%n",
+                "Transporte", "Llamadas", "Errores", "Conexiones", "Por seg.", "p50 ms", "p99 ms", "p99.9 ms", "máx. ms");
+        for (Medicion medicion : mediciones) {
+            System.out.printf("%-12s %10d %8d %10d %10.1f %10.2f %10.2f %10.2f %10.2f%n", medicion.transporte(),
+                    medicion.llamadas(), medicion.errores(), medicion.conexiones(), medicion.porSegundo(),
+                    medicion.p50Ms(), medicion.p99Ms(), medicion.p999Ms(), medicion.maxMs());
+        }
+    }
+
+    private static void guardar(List<Medicion> mediciones, Opciones opciones) throws IOException {
+        Map<String, Object> resultado = new LinkedHashMap<>();
+        resultado.put("opciones", opciones);
+        resultado.put("java", Runtime.version().toString());
+        resultado.put("transportes", mediciones);
+
+        File archivo = new File(opciones.resultados());
+        if (archivo.getParentFile() != null) {
+            archivo.getParentFile().mkdirs();
+        }
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(archivo, resultado);
+        System.out.printf("%nResultados guardados en %s%n", archivo.getPath());
+    }
+
+    private static double ms(Histogram latencias, double percentil) {
+        return latencias.getValueAtPercentile(percentil) / 1000.0;
+    }
+
+    private record Resultado(Histogram latencias, long errores) {
+    }
+}
@@ -0,0 +1,257 @@
+package com.multipedidos.proveedores.carga;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Genera una carga mixta de altas, listados y consultas de facturas y mide la latencia de
+ * cada operación.
+ *
+ * Sin {@code tasa} cada hilo envía la siguiente petición apenas recibe la respuesta anterior
+ * (lazo cerrado). Con {@code tasa} las peticiones se programan a intervalos fijos y la latencia
+ * se mide desde el instante programado, de modo que las esperas por un servidor saturado se
+ * reflejan en los percentiles altos en lugar de reducir la cantidad de muestras.
+ */
+public final class GeneradorCarga {
+
+    private static final Pattern ID = Pattern.compile("\"id\"\\s*:\\s*(\\d+)");
+    private static final int FACTURAS_RECORDADAS = 10_000;
+
+    /**
+     * Operaciones de la carga, con el código HTTP esperado.
+     */
+    public enum Operacion {
+        CREAR_FACTURA("POST /api/facturas", 201),
+        LISTAR_FACTURAS("GET /api/facturas", 200),
+        OBTENER_FACTURA("GET /api/facturas/{id}", 200);
+
+        private final String descripcion;
+        private final int statusEsperado;
+
+        Operacion(String descripcion, int statusEsperado) {
+            this.descripcion = descripcion;
+            this.statusEsperado = statusEsperado;
+        }
+
+        public String getDescripcion() {
+            return descripcion;
+        }
+    }
+
+    /**
+     * Resultado de una operación en una corrida; latencias en microsegundos.
+     */
+    public record Medicion(Operacion operacion, long operaciones, long errores, Histogram latencias) {
+    }
+
+    private final String baseUrl;
+    private final PruebaCarga.Opciones opciones;
+    private final HttpClient httpClient;
+    private final Map<Operacion, Recorder> latencias = new EnumMap<>(Operacion.class);
+    private final Map<Operacion, LongAdder> errores = new EnumMap<>(Operacion.class);
+    private final AtomicLong siguientePedido = new AtomicLong(System.currentTimeMillis() * 1000);
+    private final AtomicLongArray facturas = new AtomicLongArray(FACTURAS_RECORDADAS);
+    private final AtomicLong facturasCreadas = new AtomicLong();
+    private final List<Long> proveedores = new ArrayList<>();
+
+    public GeneradorCarga(String baseUrl, PruebaCarga.Opciones opciones) {
+        this.baseUrl = baseUrl;
+        this.opciones = opciones;
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        for (Operacion operacion : Operacion.values()) {
+            latencias.put(operacion, new Recorder(3));
+            errores.put(operacion, new LongAdder());
+        }
+    }
+
+    /**
+     * Crea los proveedores y un conjunto inicial de facturas para que los listados y las
+     * consultas por ID tengan datos desde el comienzo.
+     */
+    public void preparar() throws IOException, InterruptedException {
+        for (int i = 0; i < opciones.proveedores(); i++) {
+            String sufijo = System.currentTimeMillis() + "-" + i;
+            HttpResponse<String> respuesta = enviar(post("/api/proveedores",
+                    "{\"nombre\":\"Proveedor carga " + sufijo + "\",\"correo\":\"carga" + sufijo + "@prueba.com\"}"));
+            if (respuesta.statusCode() != 201) {
+                throw new IllegalStateException("No se pudo crear un proveedor: HTTP " + respuesta.statusCode()
+                        + " " + respuesta.body());
+            }
+            proveedores.add(extraerId(respuesta.body()));
+        }
+        for (int i = 0; i < opciones.facturasIniciales(); i++) {
+            ejecutar(Operacion.CREAR_FACTURA);
+        }
+        medir();
+    }
+
+    /**
+     * Ejecuta la carga durante el tiempo indicado con todos los hilos.
+     */
+    public void correr(Duration duracion) throws InterruptedException {
+        long inicio = System.nanoTime();
+        long fin = inicio + duracion.toNanos();
+        int hilos = opciones.hilos();
+        long intervalo = opciones.tasa() > 0 ? (long) (1e9 * hilos / opciones.tasa()) : 0;
+        List<Thread> trabajadores = new ArrayList<>(hilos);
+        for (int i = 0; i < hilos; i++) {
+            long primero = inicio + intervalo * i / hilos;
+            Thread trabajador = new Thread(() -> trabajar(primero, intervalo, fin), "carga-" + i);
+            trabajador.start();
+            trabajadores.add(trabajador);
+        }
+        for (Thread trabajador : trabajadores) {
+            trabajador.join();
+        }
+    }
+
+    /**
+     * Devuelve lo medido desde la llamada anterior y reinicia las mediciones.
+     */
+    public List<Medicion> medir() {
+        List<Medicion> mediciones = new ArrayList<>();
+        for (Operacion operacion : Operacion.values()) {
+            Histogram histograma = latencias.get(operacion).getIntervalHistogram();
+            mediciones.add(new Medicion(operacion, histograma.getTotalCount(), errores.get(operacion).sumThenReset(), histograma));
+        }
+        return mediciones;
+    }
+
+    private void trabajar(long primero, long intervalo, long fin) {
+        long siguiente = primero;
+        while (true) {
+            long programado;
+            if (intervalo > 0) {
+                programado = siguiente;
+                siguiente += intervalo;
+                if (programado >= fin) {
+                    return;
+                }
+                esperarHasta(programado);
+            } else {
+                programado = System.nanoTime();
+                if (programado >= fin) {
+                    return;
+                }
+            }
+            Operacion operacion = elegirOperacion();
+            try {
+                ejecutar(operacion, programado);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void ejecutar(Operacion operacion) throws InterruptedException {
+        ejecutar(operacion, System.nanoTime());
+    }
+
+    private void ejecutar(Operacion operacion, long inicio) throws InterruptedException {
+        boolean exito;
+        try {
+            HttpResponse<String> respuesta = enviar(peticion(operacion));
+            exito = respuesta.statusCode() == operacion.statusEsperado;
+            if (exito && operacion == Operacion.CREAR_FACTURA) {
+                recordarFactura(extraerId(respuesta.body()));
+            }
+        } catch (IOException e) {
+            exito = false;
+        }
+        latencias.get(operacion).recordValue(Math.max(1, (System.nanoTime() - inicio) / 1000));
+        if (!exito) {
+            errores.get(operacion).increment();
+        }
+    }
+
+    private Operacion elegirOperacion() {
+        int[] pesos = opciones.mezcla();
+        int valor = ThreadLocalRandom.current().nextInt(pesos[0] + pesos[1] + pesos[2]);
+        if (valor < pesos[0] || facturasCreadas.get() == 0) {
+            return Operacion.CREAR_FACTURA;
+        }
+        return valor < pesos[0] + pesos[1] ? Operacion.LISTAR_FACTURAS : Operacion.OBTENER_FACTURA;
+    }
+
+    private HttpRequest peticion(Operacion operacion) {
+        ThreadLocalRandom aleatorio = ThreadLocalRandom.current();
+        return switch (operacion) {
+            case CREAR_FACTURA -> {
+                StringBuilder cuerpo = new StringBuilder("{\"proveedorId\":")
+                        .append(proveedores.get(aleatorio.nextInt(proveedores.size())))
+                        .append(",\"pedidos\":[");
+                for (int i = 0; i < opciones.pedidosPorFactura(); i++) {
+                    cuerpo.append(i == 0 ? "" : ",")
+                            .append("{\"pedidoId\":").append(siguientePedido.getAndIncrement())
+                            .append(",\"total\":").append(10 + aleatorio.nextInt(990)).append(".50}");
+                }
+                yield post("/api/facturas", cuerpo.append("]}").toString());
+            }
+            case LISTAR_FACTURAS -> get("/api/facturas?limit=" + opciones.tamanoPagina());
+            case OBTENER_FACTURA -> {
+                long recordadas = Math.min(facturasCreadas.get(), FACTURAS_RECORDADAS);
+                yield get("/api/facturas/" + facturas.get(aleatorio.nextInt((int) recordadas)));
+            }
+        };
+    }
+
+    private void recordarFactura(long id) {
+        facturas.set((int) (facturasCreadas.getAndIncrement() % FACTURAS_RECORDADAS), id);
+    }
+
+    private HttpResponse<String> enviar(HttpRequest peticion) throws IOException, InterruptedException {
+        return httpClient.send(peticion, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpRequest get(String ruta) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + ruta))
+                .timeout(Duration.ofSeconds(30))
+                .GET()
+                .build();
+    }
+
+    private HttpRequest post(String ruta, String cuerpo) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + ruta))
+                .timeout(Duration.ofSeconds(30))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(cuerpo))
+                .build();
+    }
+
+    private static long extraerId(String json) {
+        Matcher matcher = ID.matcher(json);
+        if (!matcher.find()) {
+            throw new IllegalStateException("Respuesta sin ID: " + json);
+        }
+        return Long.parseLong(matcher.group(1));
+    }
+
+    private static void esperarHasta(long instante) {
+        long restante;
+        while ((restante = instante - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(restante);
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.multipedidos.proveedores.carga;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Envoltura del DataSource de la aplicación que obtiene el plan de cada sentencia emitida
+ * mientras hay un método de repositorio en verificación en el hilo actual.
+ *
+ * Antes de ejecutar una consulta, INSERT, UPDATE o DELETE la repite con
+ * {@code EXPLAIN (FORMAT JSON)} en la misma conexión y con los mismos parámetros, de modo que el
+ * plan es el que PostgreSQL elige para esos valores. Registra las relaciones recorridas con Seq Scan que tienen al menos
+ * {@code filasMinimas} filas estimadas: las particiones futuras vacías se recorren enteras sin
+ * costo y no cuentan.
+ */
+final class PlanesJdbc implements BeanPostProcessor {
+
+    /**
+     * Sentencia emitida por un método y relaciones que su plan recorre con Seq Scan.
+     */
+    record Sentencia(String metodo, String sql, List<String> recorridosSecuenciales) {
+    }
+
+    private static final ThreadLocal<String> METODO = new ThreadLocal<>();
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    private final long filasMinimas;
+    private final List<Sentencia> sentencias = new ArrayList<>();
+
+    PlanesJdbc(long filasMinimas) {
+        this.filasMinimas = filasMinimas;
+    }
+
+    /**
+     * Marca el hilo actual como dentro del método indicado hasta {@link #terminar()}.
+     */
+    static void iniciar(String metodo) {
+        METODO.set(metodo);
+    }
+
+    static void terminar() {
+        METODO.remove();
+    }
+
+    synchronized List<Sentencia> getSentencias() {
+        return List.copyOf(sentencias);
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String nombre) {
+        if (bean instanceof DataSource dataSource && "dataSource".equals(nombre)) {
+            return envolver(dataSource, DataSource.class, Closeable.class, (destino, metodo, args) -> {
+                if (metodo.getName().equals("close")) {
+                    if (destino instanceof AutoCloseable cerrable) {
+                        cerrable.close();
+                    }
+                    return null;
+                }
+                Object resultado = metodo.invoke(destino, args);
+                return resultado instanceof Connection conexion ? envolverConexion(conexion) : resultado;
+            });
+        }
+        return bean;
+    }
+
+    private Connection envolverConexion(Connection conexion) {
+        return envolver(conexion, Connection.class, null, (destino, metodo, args) -> {
+            Object resultado = metodo.invoke(destino, args);
+            if (resultado instanceof PreparedStatement sentencia && metodo.getName().equals("prepareStatement")) {
+                return envolverSentencia(sentencia, conexion, (String) args[0]);
+            }
+            return resultado;
+        });
+    }
+
+    private PreparedStatement envolverSentencia(PreparedStatement sentencia, Connection conexion, String sql) {
+        // Llamadas set* por índice de parámetro, para repetirlas sobre la sentencia EXPLAIN
+        Map<Integer, Object[]> parametros = new TreeMap<>();
+        return envolver(sentencia, PreparedStatement.class, null, (destino, metodo, args) -> {
+            String nombre = metodo.getName();
+            if (nombre.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer indice) {
+                parametros.put(indice, new Object[]{metodo, args});
+            } else if (nombre.equals("clearParameters")) {
+                parametros.clear();
+            } else if ((nombre.startsWith("execute") || nombre.equals("addBatch")) && METODO.get() != null
+                    && (args == null || args.length == 0)) {
+                explicar(conexion, sql, parametros);
+            }
+            return metodo.invoke(destino, args);
+        });
+    }
+
+    private void explicar(Connection conexion, String sql, Map<Integer, Object[]> parametros) throws Exception {
+        String inicio = sql.stripLeading().toLowerCase(Locale.ROOT);
+        if (!(inicio.startsWith("select") || inicio.startsWith("with") || inicio.startsWith("insert")
+                || inicio.startsWith("update") || inicio.startsWith("delete"))) {
+            return;
+        }
+        String plan;
+        try (PreparedStatement explicacion = conexion.prepareStatement("explain (format json) " + sql)) {
+            for (Object[] llamada : parametros.values()) {
+                ((Method) llamada[0]).invoke(explicacion, (Object[]) llamada[1]);
+            }
+            try (ResultSet resultado = explicacion.executeQuery()) {
+                resultado.next();
+                plan = resultado.getString(1);
+            }
+        }
+        List<String> recorridos = new ArrayList<>();
+        for (String relacion : recorridosSecuenciales(JSON.readTree(plan).get(0).get("Plan"), new ArrayList<>())) {
+            String tabla = tablaConDatos(conexion, relacion);
+            if (tabla != null && !recorridos.contains(tabla)) {
+                recorridos.add(tabla);
+            }
+        }
+        synchronized (this) {
+            sentencias.add(new Sentencia(METODO.get(), sql, recorridos));
+        }
+    }
+
+    private static List<String> recorridosSecuenciales(JsonNode nodo, List<String> relaciones) {
+        if ("Seq Scan".equals(nodo.path("Node Type").asText())) {
+            relaciones.add(nodo.path("Relation Name").asText());
+        }
+        for (JsonNode hijo : nodo.path("Plans")) {
+            recorridosSecuenciales(hijo, relaciones);
+        }
+        return relaciones;
+    }
+
+    /**
+     * Tabla de la relación recorrida, la particionada si es una partición, o null si la relación
+     * tiene menos de {@code filasMinimas} filas estimadas.
+     */
+    private String tablaConDatos(Connection conexion, String relacion) throws SQLException {
+        try (PreparedStatement consulta = conexion.prepareStatement("select c.reltuples, "
+                + "coalesce((select i.inhparent::regclass::text from pg_inherits i where i.inhrelid = c.oid), ?) "
+                + "from pg_class c where c.oid = to_regclass(?)")) {
+            consulta.setString(1, relacion);
+            consulta.setString(2, relacion);
+            try (ResultSet resultado = consulta.executeQuery()) {
+                return resultado.next() && resultado.getLong(1) >= filasMinimas ? resultado.getString(2) : null;
+            }
+        }
+    }
+
+    private interface Intercepcion<T> {
+        Object invocar(T destino, Method metodo, Object[] args) throws Exception;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T envolver(T destino, Class<T> tipo, Class<?> adicional, Intercepcion<T> intercepcion) {
+        Class<?>[] interfaces = adicional == null ? new Class<?>[]{tipo} : new Class<?>[]{tipo, adicional};
+        InvocationHandler manejador = (proxy, metodo, args) -> {
+            try {
+                return intercepcion.invocar(destino, metodo, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        };
+        return (T) Proxy.newProxyInstance(PlanesJdbc.class.getClassLoader(), interfaces, manejador);
+    }
+}
@@ -0,0 +1,198 @@
+package com.multipedidos.proveedores.carga;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.multipedidos.proveedores.ProveedoresFacturacionApplication;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Prueba de carga de punta a punta.
+ *
+ * Levanta el stub del microservicio A, inicia la aplicación con el perfil {@code dev} (H2 en
+ * memoria) apuntando al stub, prepara proveedores y facturas, descarta un período de
+ * calentamiento y mide la carga mixta durante {@code duracion} segundos. Informa por operación
+ * el throughput y los percentiles 50, 99 y 99.9 de latencia, y los guarda en JSON.
+ *
+ * Las opciones se pasan como {@code clave=valor}; los argumentos que empiezan con {@code --} se
+ * entregan a Spring, por ejemplo {@code --spring.profiles.active=default} para usar PostgreSQL.
+ * Con {@code url} no se inicia la aplicación y se mide una instancia ya levantada.
+ */
+public final class PruebaCarga {
+
+    /**
+     * Opciones de una corrida.
+     */
+    public record Opciones(int duracion, int calentamiento, int hilos, double tasa, int[] mezcla,
+                           int proveedores, int facturasIniciales, int pedidosPorFactura, int tamanoPagina,
+                           long latenciaStubMs, long variacionStubMs, double erroresStub, boolean lote,
+                           String url, String resultados, List<String> argumentosSpring) {
+
+        static Opciones leer(String[] args) {
+            Map<String, String> valores = new HashMap<>();
+            List<String> argumentosSpring = new ArrayList<>();
+            for (String arg : args) {
+                if (arg.startsWith("--")) {
+                    argumentosSpring.add(arg);
+                } else if (arg.contains("=")) {
+                    valores.put(arg.substring(0, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+                } else if (!arg.isBlank()) {
+                    throw new IllegalArgumentException("Opción inválida: " + arg + " (se espera clave=valor)");
+                }
+            }
+            int[] mezcla = Arrays.stream(valores.getOrDefault("mezcla", "20,30,50").split(","))
+                    .mapToInt(peso -> Integer.parseInt(peso.trim()))
+                    .toArray();
+            if (mezcla.length != 3 || Arrays.stream(mezcla).anyMatch(peso -> peso < 0) || Arrays.stream(mezcla).sum() == 0) {
+                throw new IllegalArgumentException("mezcla debe tener tres pesos: crear,listar,obtener");
+            }
+            return new Opciones(
+                    Integer.parseInt(valores.getOrDefault("duracion", "60")),
+                    Integer.parseInt(valores.getOrDefault("calentamiento", "15")),
+                    Integer.parseInt(valores.getOrDefault("hilos", "16")),
+                    Double.parseDouble(valores.getOrDefault("tasa", "0")),
+                    mezcla,
+                    Integer.parseInt(valores.getOrDefault("proveedores", "50")),
+                    Integer.parseInt(valores.getOrDefault("facturas-iniciales", "200")),
+                    Integer.parseInt(valores.getOrDefault("pedidos-por-factura", "3")),
+                    Integer.parseInt(valores.getOrDefault("tamano-pagina", "20")),
+                    Long.parseLong(valores.getOrDefault("stub.latencia-ms", "20")),
+                    Long.parseLong(valores.getOrDefault("stub.variacion-ms", "10")),
+                    Double.parseDouble(valores.getOrDefault("stub.errores", "0.01")),
+                    Boolean.parseBoolean(valores.getOrDefault("lote", "false")),
+                    valores.get("url"),
+                    valores.getOrDefault("resultados", "target/carga-resultados.json"),
+                    argumentosSpring);
+        }
+    }
+
+    private PruebaCarga() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Opciones opciones = Opciones.leer(args);
+        ConfigurableApplicationContext aplicacion = null;
+        String hilos = "desconocido";
+        try (StubPedidosA stub = StubPedidosA.iniciar(opciones.latenciaStubMs(), opciones.variacionStubMs(),
+                opciones.erroresStub())) {
+            String baseUrl = opciones.url();
+            if (baseUrl == null) {
+                aplicacion = iniciarAplicacion(stub.getUrl(), opciones);
+                baseUrl = "http://127.0.0.1:" + ((WebServerApplicationContext) aplicacion).getWebServer().getPort();
+                hilos = Threading.VIRTUAL.isActive(aplicacion.getEnvironment()) ? "virtuales" : "plataforma";
+            }
+            System.out.printf("Aplicación en %s (Java %s, hilos %s), stub del microservicio A en %s%n",
+                    baseUrl, Runtime.version().feature(), hilos, stub.getUrl());
+
+            GeneradorCarga generador = new GeneradorCarga(baseUrl, opciones);
+            generador.preparar();
+            if (opciones.calentamiento() > 0) {
+                System.out.printf("Calentamiento de %d s...%n", opciones.calentamiento());
+                generador.correr(Duration.ofSeconds(opciones.calentamiento()));
+                generador.medir();
+            }
+            System.out.printf("Midiendo durante %d s con %d hilos%s...%n", opciones.duracion(), opciones.hilos(),
+                    opciones.tasa() > 0 ? " a " + opciones.tasa() + " peticiones/s" : "");
+            long inicio = System.nanoTime();
+            generador.correr(Duration.ofSeconds(opciones.duracion()));
+            double segundos = (System.nanoTime() - inicio) / 1e9;
+            List<GeneradorCarga.Medicion> mediciones = generador.medir();
+
+            imprimir(mediciones, segundos);
+            guardar(mediciones, segundos, opciones, hilos);
+        } finally {
+            if (aplicacion != null) {
+                aplicacion.close();
+            }
+        }
+    }
+
+    private static ConfigurableApplicationContext iniciarAplicacion(String urlStub, Opciones opciones) {
+        Map<String, String> propiedades = new LinkedHashMap<>();
+        propiedades.put("spring.profiles.active", "dev");
+        propiedades.put("server.port", "0");
+        propiedades.put("spring.jpa.show-sql", "false");
+        propiedades.put("logging.level.root", "WARN");
+        propiedades.put("logging.level.com.multipedidos", "ERROR");
+        propiedades.put("logging.level.org.springframework.web", "WARN");
+        propiedades.put("logging.level.org.hibernate.SQL", "WARN");
+        propiedades.put("microservice.clientes-pedidos.url", urlStub);
+        propiedades.put("microservice.clientes-pedidos.ruta-lote", opciones.lote() ? StubPedidosA.RUTA_LOTE : "");
+        // Spring une con comas los argumentos repetidos: los del usuario reemplazan a los anteriores
+        for (String argumento : opciones.argumentosSpring()) {
+            int igual = argumento.indexOf('=');
+            propiedades.put(igual < 0 ? argumento.substring(2) : argumento.substring(2, igual),
+                    igual < 0 ? "true" : argumento.substring(igual + 1));
+        }
+        String[] argumentos = propiedades.entrySet().stream()
+                .map(propiedad -> "--" + propiedad.getKey() + "=" + propiedad.getValue())
+                .toArray(String[]::new);
+        return SpringApplication.run(ProveedoresFacturacionApplication.class, argumentos);
+    }
+
+    private static void imprimir(List<GeneradorCarga.Medicion> mediciones, double segundos) {
+        System.out.printf("%n%-24s %10s %8s %10s %10s %10s %10s %10s%n",
+                "Operación", "Peticiones", "Errores", "Por seg.", "p50 ms", "p99 ms", "p99.9 ms", "máx. ms");
+        Histogram total = new Histogram(3);
+        long errores = 0;
+        for (GeneradorCarga.Medicion medicion : mediciones) {
+            imprimirFila(medicion.operacion().getDescripcion(), medicion.latencias(), medicion.errores(), segundos);
+            total.add(medicion.latencias());
+            errores += medicion.errores();
+        }
+        imprimirFila("Total", total, errores, segundos);
+    }
+
+    private static void imprimirFila(String nombre, Histogram latencias, long errores, double segundos) {
+        System.out.printf("%-24s %10d %8d %10.1f %10.2f %10.2f %10.2f %10.2f%n", nombre, latencias.getTotalCount(),
+                errores, latencias.getTotalCount() / segundos, ms(latencias, 50), ms(latencias, 99),
+                ms(latencias, 99.9), latencias.getMaxValue() / 1000.0);
+    }
+
+    private static void guardar(List<GeneradorCarga.Medicion> mediciones, double segundos, Opciones opciones,
+                                String hilos) throws IOException {
+        Map<String, Object> operaciones = new LinkedHashMap<>();
+        for (GeneradorCarga.Medicion medicion : mediciones) {
+            Histogram latencias = medicion.latencias();
+            Map<String, Object> datos = new LinkedHashMap<>();
+            datos.put("peticiones", latencias.getTotalCount());
+            datos.put("errores", medicion.errores());
+            datos.put("porSegundo", latencias.getTotalCount() / segundos);
+            datos.put("p50Ms", ms(latencias, 50));
+            datos.put("p99Ms", ms(latencias, 99));
+            datos.put("p999Ms", ms(latencias, 99.9));
+            datos.put("maxMs", latencias.getMaxValue() / 1000.0);
+            operaciones.put(medicion.operacion().getDescripcion(), datos);
+        }
+        Map<String, Object> resultado = new LinkedHashMap<>();
+        resultado.put("opciones", opciones);
+        resultado.put("java", Runtime.version().toString());
+        resultado.put("hilos", hilos);
+        resultado.put("segundos", segundos);
+        resultado.put("operaciones", operaciones);
+
+        File archivo = new File(opciones.resultados());
+        if (archivo.getParentFile() != null) {
+            archivo.getParentFile().mkdirs();
+        }
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(archivo, resultado);
+        System.out.printf("%nResultados guardados en %s%n", archivo.getPath());
+    }
+
+    private static double ms(Histogram latencias, double percentil) {
+        return latencias.getValueAtPercentile(percentil) / 1000.0;
+    }
+}
@@ -0,0 +1,131 @@
+package com.multipedidos.proveedores.carga;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.Set;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+
+/**
+ * Imitación local del microservicio A para las pruebas de carga.
+ *
+ * Responde {@code GET /api/pedidos/{id}} y {@code GET /api/pedidos/lote?ids=1,2} con pedidos
+ * generados a partir del ID, después de una demora de {@code latenciaMs} más un valor uniforme
+ * entre 0 y {@code variacionMs}. Una fracción {@code tasaErrores} de las llamadas responde 500.
+ * Registra la dirección remota de cada llamada para contar las conexiones abiertas por el cliente.
+ */
+public final class StubPedidosA implements AutoCloseable {
+
+    static final String RUTA_PEDIDO = "/api/pedidos/";
+    static final String RUTA_LOTE = "/api/pedidos/lote";
+
+    private final HttpServer servidor;
+    private final ExecutorService hilos;
+    private final long latenciaMs;
+    private final long variacionMs;
+    private final double tasaErrores;
+    private final Set<InetSocketAddress> conexiones = ConcurrentHashMap.newKeySet();
+
+    private StubPedidosA(long latenciaMs, long variacionMs, double tasaErrores) throws IOException {
+        this.latenciaMs = latenciaMs;
+        this.variacionMs = variacionMs;
+        this.tasaErrores = tasaErrores;
+        // Sin TCP_NODELAY el encabezado y el cuerpo viajan en escrituras separadas y el ACK diferido
+        // del cliente suma unos 40 ms a cada respuesta en conexiones reutilizadas
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        this.servidor = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024);
+        // Cada llamada ocupa un hilo mientras dura la demora, como un servidor bloqueante
+        this.hilos = Executors.newCachedThreadPool(tarea -> {
+            Thread hilo = new Thread(tarea, "stub-pedidos");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        servidor.createContext(RUTA_PEDIDO, this::atender);
+        servidor.setExecutor(hilos);
+    }
+
+    public static StubPedidosA iniciar(long latenciaMs, long variacionMs, double tasaErrores) throws IOException {
+        StubPedidosA stub = new StubPedidosA(latenciaMs, variacionMs, tasaErrores);
+        stub.servidor.start();
+        return stub;
+    }
+
+    /**
+     * Conexiones distintas (dirección y puerto de origen) que hicieron al menos una llamada.
+     */
+    public int getConexiones() {
+        return conexiones.size();
+    }
+
+    public String getUrl() {
+        return "http://127.0.0.1:" + servidor.getAddress().getPort();
+    }
+
+    private void atender(HttpExchange intercambio) throws IOException {
+        try (intercambio) {
+            conexiones.add(intercambio.getRemoteAddress());
+            demorar();
+            if (ThreadLocalRandom.current().nextDouble() < tasaErrores) {
+                responder(intercambio, 500, "{\"error\":\"Error simulado\"}");
+                return;
+            }
+            String ruta = intercambio.getRequestURI().getPath();
+            if (ruta.equals(RUTA_LOTE)) {
+                String consulta = intercambio.getRequestURI().getQuery();
+                String ids = consulta == null || !consulta.startsWith("ids=") ? "" : consulta.substring(4);
+                String cuerpo = Arrays.stream(ids.split(","))
+                        .filter(id -> !id.isBlank())
+                        .map(id -> pedido(Long.parseLong(id)))
+                        .collect(Collectors.joining(",", "[", "]"));
+                responder(intercambio, 200, cuerpo);
+                return;
+            }
+            try {
+                responder(intercambio, 200, pedido(Long.parseLong(ruta.substring(RUTA_PEDIDO.length()))));
+            } catch (NumberFormatException e) {
+                responder(intercambio, 404, "{\"error\":\"Pedido no encontrado\"}");
+            }
+        }
+    }
+
+    private void demorar() {
+        long demora = latenciaMs + (variacionMs > 0 ? ThreadLocalRandom.current().nextLong(variacionMs + 1) : 0);
+        if (demora <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(demora);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static String pedido(long id) {
+        return "{\"id\":" + id + ",\"clienteId\":" + (id % 1000 + 1)
+                + ",\"productos\":[{\"nombre\":\"Producto " + id + "\",\"precio\":10.00}],\"total\":10.00}";
+    }
+
+    private static void responder(HttpExchange intercambio, int status, String cuerpo) throws IOException {
+        byte[] bytes = cuerpo.getBytes(StandardCharsets.UTF_8);
+        intercambio.getResponseHeaders().set("Content-Type", "application/json");
+        intercambio.sendResponseHeaders(status, bytes.length);
+        try (OutputStream salida = intercambio.getResponseBody()) {
+            salida.write(bytes);
+        }
+    }
+
+    @Override
+    public void close() {
+        servidor.stop(0);
+        hilos.shutdownNow();
+    }
+}
@@ -0,0 +1,350 @@
+package com.multipedidos.proveedores.carga;
+
+import com.multipedidos.proveedores.ProveedoresFacturacionApplication;
+import com.multipedidos.proveedores.dto.FiltroFacturasDTO;
+import com.multipedidos.proveedores.model.Factura;
+import com.multipedidos.proveedores.model.TrabajoFactura.EstadoTrabajo;
+import com.multipedidos.proveedores.repository.FacturaRepository;
+import com.multipedidos.proveedores.repository.PedidoFacturadoRepository;
+import com.multipedidos.proveedores.repository.ProveedorRepository;
+import com.multipedidos.proveedores.repository.ResumenProveedorRepository;
+import com.multipedidos.proveedores.repository.TrabajoFacturaRepository;
+import com.multipedidos.proveedores.service.RetencionFacturas;
+import com.multipedidos.proveedores.util.CursorPaginacion;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+/**
+ * Verificación de los planes de las consultas de los repositorios en PostgreSQL.
+ *
+ * Crea un esquema de trabajo en la base indicada, inicia la aplicación sobre él (Flyway aplica
+ * las migraciones), lo llena con datos sintéticos, lo analiza y llama a cada método de los
+ * repositorios dentro de una transacción que se revierte. Cada sentencia emitida se explica con
+ * sus parámetros ({@link PlanesJdbc}); la verificación falla si alguna recorre con Seq Scan una
+ * tabla con datos. Los métodos de {@link #RECORRIDOS_COMPLETOS} leen la tabla entera a propósito
+ * y solo se informan. Al terminar el esquema se elimina, salvo con {@code conservar=true}.
+ *
+ * Opciones {@code clave=valor}: {@code url}, {@code usuario}, {@code clave}, {@code esquema},
+ * {@code proveedores}, {@code facturas}, {@code trabajos}, {@code filas-minimas} y
+ * {@code conservar}; los argumentos que empiezan con {@code --} se entregan a Spring.
+ */
+public final class VerificacionPlanes {
+
+    /**
+     * Métodos que recorren toda la tabla por diseño: exportaciones y recargas de filtros y cachés.
+     */
+    static final Set<String> RECORRIDOS_COMPLETOS = Set.of(
+            "FacturaRepository.recorrerTodas",
+            "PedidoFacturadoRepository.recorrerPedidoIds",
+            "ProveedorRepository.buscarTodosLosIds",
+            "ResumenProveedorRepository.completarFaltantes");
+
+    /**
+     * Opciones de una corrida.
+     */
+    record Opciones(String url, String usuario, String clave, String esquema, int proveedores, int facturas,
+                    int trabajos, long filasMinimas, boolean conservar, List<String> argumentosSpring) {
+
+        static Opciones leer(String[] args) {
+            Map<String, String> valores = new HashMap<>();
+            List<String> argumentosSpring = new ArrayList<>();
+            for (String arg : args) {
+                if (arg.startsWith("--")) {
+                    argumentosSpring.add(arg);
+                } else if (arg.contains("=")) {
+                    valores.put(arg.substring(0, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+                } else if (!arg.isBlank()) {
+                    throw new IllegalArgumentException("Opción inválida: " + arg + " (se espera clave=valor)");
+                }
+            }
+            String esquema = valores.getOrDefault("esquema", "verificacion_planes");
+            if (!esquema.matches("[a-z_][a-z0-9_]*")) {
+                throw new IllegalArgumentException("esquema debe ser un identificador en minúsculas: " + esquema);
+            }
+            return new Opciones(
+                    valores.getOrDefault("url", "jdbc:postgresql://localhost:5432/proveedores_facturacion"),
+                    valores.getOrDefault("usuario", "postgres"),
+                    valores.getOrDefault("clave", ""),
+                    esquema,
+                    Integer.parseInt(valores.getOrDefault("proveedores", "20000")),
+                    Integer.parseInt(valores.getOrDefault("facturas", "200000")),
+                    Integer.parseInt(valores.getOrDefault("trabajos", "20000")),
+                    Long.parseLong(valores.getOrDefault("filas-minimas", "1000")),
+                    Boolean.parseBoolean(valores.getOrDefault("conservar", "false")),
+                    argumentosSpring);
+        }
+
+        String urlEsquema() {
+            return url + (url.contains("?") ? "&" : "?") + "currentSchema=" + esquema;
+        }
+    }
+
+    private final Opciones opciones;
+    private final ConfigurableApplicationContext aplicacion;
+    private final TransactionTemplate transaccion;
+    private final SessionFactory sessionFactory;
+    private final List<String> metodos = new ArrayList<>();
+
+    private VerificacionPlanes(Opciones opciones, ConfigurableApplicationContext aplicacion) {
+        this.opciones = opciones;
+        this.aplicacion = aplicacion;
+        this.transaccion = new TransactionTemplate(aplicacion.getBean(PlatformTransactionManager.class));
+        this.sessionFactory = aplicacion.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Opciones opciones = Opciones.leer(args);
+        PlanesJdbc planes = new PlanesJdbc(opciones.filasMinimas());
+        List<String> metodos;
+        ejecutarEnBase(opciones, "drop schema if exists " + opciones.esquema() + " cascade");
+        try (ConfigurableApplicationContext aplicacion = iniciarAplicacion(opciones, planes)) {
+            VerificacionPlanes verificacion = new VerificacionPlanes(opciones, aplicacion);
+            System.out.printf("Esquema %s migrado; cargando %d proveedores, %d facturas y %d trabajos...%n",
+                    opciones.esquema(), opciones.proveedores(), opciones.facturas(), opciones.trabajos());
+            verificacion.poblar();
+            verificacion.llamarRepositorios();
+            metodos = verificacion.metodos;
+        } finally {
+            if (!opciones.conservar()) {
+                ejecutarEnBase(opciones, "drop schema if exists " + opciones.esquema() + " cascade");
+            }
+        }
+        List<String> fallas = informar(metodos, planes.getSentencias());
+        if (!fallas.isEmpty()) {
+            throw new IllegalStateException("Métodos con Seq Scan sobre tablas con datos o sin sentencias: " + fallas);
+        }
+    }
+
+    private static ConfigurableApplicationContext iniciarAplicacion(Opciones opciones, PlanesJdbc planes) {
+        Map<String, String> propiedades = new LinkedHashMap<>();
+        propiedades.put("spring.main.web-application-type", "none");
+        propiedades.put("spring.datasource.url", opciones.urlEsquema());
+        propiedades.put("spring.datasource.username", opciones.usuario());
+        propiedades.put("spring.datasource.password", opciones.clave());
+        propiedades.put("spring.flyway.schemas", opciones.esquema());
+        propiedades.put("spring.jpa.show-sql", "false");
+        propiedades.put("logging.level.root", "WARN");
+        propiedades.put("logging.level.com.multipedidos", "WARN");
+        propiedades.put("logging.level.org.hibernate.SQL", "WARN");
+        // Sin tareas de fondo que escriban en el esquema mientras se miden los planes
+        propiedades.put("replicas.habilitado", "false");
+        propiedades.put("facturacion.trabajos.habilitado", "false");
+        propiedades.put("facturacion.particiones.habilitado", "false");
+        for (String argumento : opciones.argumentosSpring()) {
+            int igual = argumento.indexOf('=');
+            propiedades.put(igual < 0 ? argumento.substring(2) : argumento.substring(2, igual),
+                    igual < 0 ? "true" : argumento.substring(igual + 1));
+        }
+        SpringApplication aplicacion = new SpringApplication(ProveedoresFacturacionApplication.class);
+        aplicacion.addInitializers(contexto -> contexto.getBeanFactory().addBeanPostProcessor(planes));
+        return aplicacion.run(propiedades.entrySet().stream()
+                .map(propiedad -> "--" + propiedad.getKey() + "=" + propiedad.getValue())
+                .toArray(String[]::new));
+    }
+
+    private static void ejecutarEnBase(Opciones opciones, String sql) throws SQLException {
+        try (Connection conexion = DriverManager.getConnection(opciones.url(), opciones.usuario(), opciones.clave());
+             Statement sentencia = conexion.createStatement()) {
+            sentencia.execute(sql);
+        }
+    }
+
+    /**
+     * Datos con la forma de producción: fechas repartidas en los meses de retención, pocas
+     * facturas canceladas y trabajos terminados recientes (la purga borra los antiguos).
+     */
+    private void poblar() {
+        JdbcTemplate jdbc = new JdbcTemplate(aplicacion.getBean(DataSource.class));
+        int facturas = opciones.facturas();
+        jdbc.execute("select crear_particiones_facturas((current_date - interval '24 months')::date, current_date)");
+        jdbc.update("insert into proveedores (nombre, correo, fecha_registro) "
+                + "select 'Proveedor ' || i, 'proveedor' || i || '@verificacion.local', localtimestamp "
+                + "from generate_series(1, ?) i", opciones.proveedores());
+        jdbc.update("insert into facturas (id, proveedor_id, total_factura, fecha_factura, estado, version) "
+                + "select i, 1 + i % ?, (i % 100000) / 100.0, localtimestamp - interval '720 days' * (? - i) / ?, "
+                + "case when i % 100 = 0 then 'CANCELADA' when i % 3 = 0 then 'PAGADA' else 'PENDIENTE' end, 0 "
+                + "from generate_series(1, ?) i", opciones.proveedores(), facturas, facturas, facturas);
+        jdbc.update("insert into pedidos_referencias (id, pedido_id, total, factura_id, fecha_factura) "
+                + "select f.id * 3 + k, f.id * 3 + k, 10.00, f.id, f.fecha_factura "
+                + "from facturas f cross join generate_series(0, 2) k");
+        jdbc.update("insert into pedidos_facturados (pedido_id, factura_id) "
+                + "select pedido_id, factura_id from pedidos_referencias");
+        jdbc.update("insert into resumen_proveedores "
+                + "(proveedor_id, cantidad_facturas, total_facturado, monto_pendiente, monto_pagado, fecha_actualizacion) "
+                + "select p.id, count(f.id), coalesce(sum(f.total_factura), 0), 0, 0, localtimestamp "
+                + "from proveedores p left join facturas f on f.proveedor_id = p.id group by p.id");
+        jdbc.update("insert into trabajos_facturas "
+                + "(id, entrada, estado, intentos, factura_id, error, fecha_creacion, fecha_actualizacion) "
+                + "select i, '{}', case when i % 200 = 0 then 'PENDIENTE' when i % 200 = 1 then 'EN_PROCESO' "
+                + "when i % 50 = 2 then 'FALLIDO' else 'COMPLETADO' end, 1, null, null, "
+                + "localtimestamp - interval '170 hours' * (? - i) / ?, localtimestamp - interval '170 hours' * (? - i) / ? "
+                + "from generate_series(1, ?) i",
+                opciones.trabajos(), opciones.trabajos(), opciones.trabajos(), opciones.trabajos(), opciones.trabajos());
+        jdbc.execute("analyze");
+    }
+
+    private void llamarRepositorios() {
+        FacturaRepository facturas = aplicacion.getBean(FacturaRepository.class);
+        PedidoFacturadoRepository pedidosFacturados = aplicacion.getBean(PedidoFacturadoRepository.class);
+        ProveedorRepository proveedores = aplicacion.getBean(ProveedorRepository.class);
+        ResumenProveedorRepository resumenes = aplicacion.getBean(ResumenProveedorRepository.class);
+        TrabajoFacturaRepository trabajos = aplicacion.getBean(TrabajoFacturaRepository.class);
+
+        long facturaId = opciones.facturas() / 2;
+        long proveedorId = 1 + facturaId % opciones.proveedores();
+        LocalDateTime ahora = LocalDateTime.now();
+        LocalDateTime inicio = aplicacion.getBean(RetencionFacturas.class).inicio();
+        List<Long> facturaIds = LongStream.range(facturaId, facturaId + 20).boxed().toList();
+        List<Long> pedidoIds = LongStream.range(facturaId * 3, facturaId * 3 + 20).boxed().toList();
+        List<Long> proveedorIds = LongStream.range(proveedorId, proveedorId + 20).boxed().toList();
+        List<Long> trabajoIds = LongStream.range(1, 21).boxed().toList();
+        PageRequest pagina = PageRequest.of(0, CursorPaginacion.LIMITE_POR_DEFECTO + 1);
+        CursorPaginacion.ClaveFecha cursor = transaccion.execute(estado -> {
+            Factura factura = facturas.findById(facturaId).orElseThrow();
+            return new CursorPaginacion.ClaveFecha(factura.getFechaFactura(), factura.getId());
+        });
+
+        verificar("FacturaRepository.findById", () -> facturas.findById(facturaId).orElseThrow().getPedidos().size());
+        verificar("FacturaRepository.buscarPorId", () -> facturas.buscarPorId(facturaId, inicio));
+        verificar("FacturaRepository.buscarVersion", () -> facturas.buscarVersion(facturaId, inicio));
+        verificar("FacturaRepository.buscarPorEstado",
+                () -> facturas.buscarPorEstado(Factura.EstadoFactura.CANCELADA, inicio));
+        verificar("FacturaRepository.recorrerTodas", () -> {
+            try (Stream<Factura> todas = facturas.recorrerTodas()) {
+                todas.limit(10).count();
+            }
+        });
+        verificar("FacturaRepository.buscarPagina", () -> facturas.buscarPagina(inicio, pagina));
+        verificar("FacturaRepository.buscarPaginaDesde",
+                () -> facturas.buscarPaginaDesde(inicio, cursor.fecha(), cursor.id(), pagina));
+        verificar("FacturaRepository.buscarPaginaPorProveedor",
+                () -> facturas.buscarPaginaPorProveedor(proveedorId, inicio, pagina));
+        verificar("FacturaRepository.buscarPaginaPorProveedorDesde",
+                () -> facturas.buscarPaginaPorProveedorDesde(proveedorId, inicio, cursor.fecha(), cursor.id(), pagina));
+        verificar("FacturaRepository.buscarEstados", () -> facturas.buscarEstados(facturaIds, inicio));
+        verificar("FacturaRepository.cambiarEstado", () -> facturas.cambiarEstado(facturaIds, inicio,
+                Factura.EstadoFactura.PENDIENTE, Factura.EstadoFactura.PAGADA));
+        int limite = pagina.getPageSize();
+        verificar("FacturaRepository.buscar sin filtros",
+                () -> facturas.buscar(FiltroFacturasDTO.builder().build(), inicio, cursor, limite));
+        verificar("FacturaRepository.buscar por proveedor", () -> facturas.buscar(
+                FiltroFacturasDTO.builder().proveedorId(proveedorId).build(), inicio, null, limite));
+        verificar("FacturaRepository.buscar por estado", () -> facturas.buscar(
+                FiltroFacturasDTO.builder().estado(Factura.EstadoFactura.PAGADA).build(), inicio, cursor, limite));
+        verificar("FacturaRepository.buscar por fechas", () -> facturas.buscar(FiltroFacturasDTO.builder()
+                .fechaDesde(LocalDate.now().minusMonths(1)).fechaHasta(LocalDate.now()).build(), inicio, null, limite));
+        verificar("FacturaRepository.buscar por total", () -> facturas.buscar(FiltroFacturasDTO.builder()
+                .totalMinimo(new BigDecimal("123.45")).totalMaximo(new BigDecimal("123.45")).build(), inicio, null,
+                limite));
+
+        verificar("PedidoFacturadoRepository.buscarFacturados", () -> pedidosFacturados.buscarFacturados(pedidoIds));
+        verificar("PedidoFacturadoRepository.recorrerPedidoIds", () -> {
+            try (Stream<Long> todos = pedidosFacturados.recorrerPedidoIds()) {
+                todos.limit(10).count();
+            }
+        });
+
+        verificar("ProveedorRepository.findById", () -> proveedores.findById(proveedorId));
+        verificar("ProveedorRepository.findByCorreo",
+                () -> proveedores.findByCorreo("proveedor" + proveedorId + "@verificacion.local"));
+        verificar("ProveedorRepository.existsByCorreo",
+                () -> proveedores.existsByCorreo("proveedor" + proveedorId + "@verificacion.local"));
+        verificar("ProveedorRepository.findByIdGreaterThanOrderByIdAsc",
+                () -> proveedores.findByIdGreaterThanOrderByIdAsc(proveedorId, PageRequest.of(0, 100)));
+        verificar("ProveedorRepository.buscarIdsExistentes", () -> proveedores.buscarIdsExistentes(proveedorIds));
+        verificar("ProveedorRepository.buscarTodosLosIds", proveedores::buscarTodosLosIds);
+
+        verificar("ResumenProveedorRepository.findById", () -> resumenes.findById(proveedorId));
+        verificar("ResumenProveedorRepository.acumular", () -> resumenes.acumular(proveedorId, 1,
+                BigDecimal.TEN, BigDecimal.TEN, BigDecimal.ZERO, ahora));
+        verificar("ResumenProveedorRepository.crearVacioSiFalta", () -> resumenes.crearVacioSiFalta(proveedorId, ahora));
+        verificar("ResumenProveedorRepository.bloquearPorIds", () -> resumenes.bloquearPorIds(proveedorIds));
+        verificar("ResumenProveedorRepository.findByProveedorIdGreaterThanOrderByProveedorIdAsc",
+                () -> resumenes.findByProveedorIdGreaterThanOrderByProveedorIdAsc(proveedorId, PageRequest.of(0, 100)));
+        verificar("ResumenProveedorRepository.completarFaltantes", () -> resumenes.completarFaltantes(ahora));
+
+        verificar("TrabajoFacturaRepository.findById", () -> trabajos.findById(trabajoIds.get(0)));
+        verificar("TrabajoFacturaRepository.bloquearPorEstado",
+                () -> trabajos.bloquearPorEstado(EstadoTrabajo.PENDIENTE, PageRequest.of(0, 20)));
+        verificar("TrabajoFacturaRepository.liberarAtascados", () -> trabajos.liberarAtascados(
+                EstadoTrabajo.PENDIENTE, EstadoTrabajo.EN_PROCESO, ahora.minusMinutes(5), ahora));
+        verificar("TrabajoFacturaRepository.completar",
+                () -> trabajos.completar(trabajoIds.get(0), EstadoTrabajo.EN_PROCESO, EstadoTrabajo.COMPLETADO,
+                        facturaId, ahora));
+        verificar("TrabajoFacturaRepository.registrarFallo", () -> trabajos.registrarFallo(trabajoIds.get(0),
+                EstadoTrabajo.EN_PROCESO, EstadoTrabajo.PENDIENTE, EstadoTrabajo.FALLIDO, 3, "error", ahora));
+        verificar("TrabajoFacturaRepository.buscarTerminados", () -> trabajos.buscarTerminados(
+                List.of(EstadoTrabajo.COMPLETADO, EstadoTrabajo.FALLIDO), ahora.minusHours(168), PageRequest.of(0, 1000)));
+        verificar("TrabajoFacturaRepository.borrarPorIds", () -> trabajos.borrarPorIds(trabajoIds));
+    }
+
+    /**
+     * Llama al método en una transacción que se revierte, sin caché de segundo nivel que evite
+     * las consultas.
+     */
+    private void verificar(String metodo, Runnable llamada) {
+        metodos.add(metodo);
+        sessionFactory.getCache().evictAllRegions();
+        PlanesJdbc.iniciar(metodo);
+        try {
+            transaccion.executeWithoutResult(estado -> {
+                llamada.run();
+                estado.setRollbackOnly();
+            });
+        } finally {
+            PlanesJdbc.terminar();
+        }
+    }
+
+    private static List<String> informar(List<String> metodos, List<PlanesJdbc.Sentencia> sentencias) {
+        Map<String, Set<String>> recorridosPorMetodo = new LinkedHashMap<>();
+        metodos.forEach(metodo -> recorridosPorMetodo.put(metodo, null));
+        for (PlanesJdbc.Sentencia sentencia : sentencias) {
+            recorridosPorMetodo.compute(sentencia.metodo(),
+                            (metodo, recorridos) -> recorridos == null ? new LinkedHashSet<>() : recorridos)
+                    .addAll(sentencia.recorridosSecuenciales());
+        }
+        List<String> fallas = new ArrayList<>();
+        System.out.printf("%n%-70s %s%n", "Método", "Seq Scan sobre tablas con datos");
+        recorridosPorMetodo.forEach((metodo, recorridos) -> {
+            if (recorridos == null) {
+                // Una llamada resuelta sin consultar la base no verifica nada
+                fallas.add(metodo);
+                System.out.printf("%-70s %s%n", metodo, "sin sentencias");
+                return;
+            }
+            String resultado = recorridos.isEmpty() ? "ninguno" : String.join(", ", recorridos);
+            if (!recorridos.isEmpty() && RECORRIDOS_COMPLETOS.contains(metodo)) {
+                resultado += " (recorrido completo por diseño)";
+            } else if (!recorridos.isEmpty()) {
+                fallas.add(metodo);
+            }
+            System.out.printf("%-70s %s%n", metodo, resultado);
+        });
+        return fallas;
+    }
+}
@@ -0,0 +1,85 @@
+package com.multipedidos.proveedores.service;
+
+import com.multipedidos.proveedores.dto.FacturaDTO;
+import com.multipedidos.proveedores.dto.FacturaInputDTO;
+import com.multipedidos.proveedores.dto.PedidoReferenciaDTO;
+import com.multipedidos.proveedores.model.Factura;
+import com.multipedidos.common.utils.CalculadoraDescuentos;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Costo de CPU y asignaciones de la creación y el mapeo de una factura según la cantidad
+ * de pedidos, sin base de datos ni llamadas remotas.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FacturaBenchmark {
+
+    @Param({"1", "10", "100"})
+    private int cantidadPedidos;
+
+    private FacturaService facturaService;
+    private FacturaInputDTO entrada;
+    private BigDecimal subtotal;
+    private Factura factura;
+
+    @Setup
+    public void preparar() {
+        // Los métodos medidos no usan repositorios, clientes ni el EntityManager
+        facturaService = new FacturaService(null, null, null, null, null, null, null, null, null, null);
+        List<PedidoReferenciaDTO> pedidos = IntStream.rangeClosed(1, cantidadPedidos)
+                .mapToObj(i -> PedidoReferenciaDTO.builder()
+                        .pedidoId((long) i)
+                        .total(BigDecimal.valueOf(1000 + i * 37L, 2))
+                        .build())
+                .collect(Collectors.toList());
+        entrada = FacturaInputDTO.builder()
+                .proveedorId(1L)
+                .pedidos(pedidos)
+                .build();
+        subtotal = FacturaService.sumarTotales(pedidos);
+        factura = facturaService.construirFactura(entrada);
+        factura.setId(1L);
+        factura.setVersion(0L);
+    }
+
+    @Benchmark
+    public BigDecimal sumarTotales() {
+        return FacturaService.sumarTotales(entrada.getPedidos());
+    }
+
+    @Benchmark
+    public BigDecimal aplicarDescuento() {
+        return CalculadoraDescuentos.aplicarDescuentoPorMonto(subtotal);
+    }
+
+    @Benchmark
+    public Factura construirFactura() {
+        return facturaService.construirFactura(entrada);
+    }
+
+    @Benchmark
+    public FacturaDTO mapearFactura() {
+        return facturaService.mapearADTO(factura);
+    }
+}
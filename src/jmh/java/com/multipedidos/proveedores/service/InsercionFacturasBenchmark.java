@@ -0,0 +1,141 @@
+package com.multipedidos.proveedores.service;
+
+import com.multipedidos.proveedores.model.Factura;
+import com.multipedidos.proveedores.model.PedidoFacturado;
+import com.multipedidos.proveedores.model.PedidoReferencia;
+import com.zaxxer.hikari.HikariDataSource;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.cfg.Configuration;
+import org.hibernate.engine.jdbc.connections.internal.DatasourceConnectionProviderImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Costo de guardar una factura con sus referencias de pedidos y sus registros de pedidos
+ * facturados, como en {@link FacturaService#crearFactura}, con y sin inserciones por lotes.
+ *
+ * <p>Por defecto usa H2 en memoria, que mide las sentencias pero no los viajes de red. Para
+ * medir contra PostgreSQL se pasa una base de pruebas ya migrada con Flyway:
+ * {@code -Djmh.args="InsercionFacturasBenchmark -p url=jdbc:postgresql://localhost:5432/pruebas?reWriteBatchedInserts=true -p usuario=... -p clave=..."}.
+ * Las filas insertadas llevan el proveedor {@link #PROVEEDOR} y se borran al terminar cada iteración.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InsercionFacturasBenchmark {
+
+    private static final long PROVEEDOR = -1L;
+
+    @Param({"10", "100", "1000"})
+    private int pedidosPorFactura;
+
+    /**
+     * 1 desactiva el agrupamiento de JDBC; 50 es el valor de {@code hibernate.jdbc.batch_size}.
+     */
+    @Param({"1", "50"})
+    private int tamanoLote;
+
+    @Param("jdbc:h2:mem:insercion;DB_CLOSE_DELAY=-1")
+    private String url;
+
+    @Param("sa")
+    private String usuario;
+
+    @Param("")
+    private String clave;
+
+    private HikariDataSource dataSource;
+    private SessionFactory sessionFactory;
+    private long siguientePedido = 1_000_000_000_000L;
+
+    @Setup
+    public void preparar() {
+        // Sin Spring no se configura el logging y el nivel DEBUG por defecto de Logback distorsiona la medición
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME))
+                .setLevel(ch.qos.logback.classic.Level.WARN);
+        boolean h2 = url.startsWith("jdbc:h2:");
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(url);
+        dataSource.setUsername(usuario);
+        dataSource.setPassword(clave);
+        Configuration configuracion = new Configuration()
+                .addAnnotatedClass(Factura.class)
+                .addAnnotatedClass(PedidoReferencia.class)
+                .addAnnotatedClass(PedidoFacturado.class);
+        DatasourceConnectionProviderImpl conexiones = new DatasourceConnectionProviderImpl();
+        conexiones.setDataSource(dataSource);
+        configuracion.getProperties().put(AvailableSettings.CONNECTION_PROVIDER, conexiones);
+        sessionFactory = configuracion
+                // En PostgreSQL el esquema lo crea Flyway, con las tablas particionadas
+                .setProperty(AvailableSettings.HBM2DDL_AUTO, h2 ? "create-drop" : "none")
+                .setProperty(AvailableSettings.USE_SECOND_LEVEL_CACHE, "false")
+                .setProperty(AvailableSettings.STATEMENT_BATCH_SIZE, String.valueOf(tamanoLote))
+                .setProperty(AvailableSettings.ORDER_INSERTS, "true")
+                .buildSessionFactory();
+    }
+
+    @TearDown(Level.Iteration)
+    public void borrarFacturas() {
+        sessionFactory.inTransaction(session -> {
+            session.createMutationQuery("delete from PedidoFacturado p where p.facturaId in "
+                            + "(select f.id from Factura f where f.proveedorId = :proveedor)")
+                    .setParameter("proveedor", PROVEEDOR)
+                    .executeUpdate();
+            session.createMutationQuery("delete from PedidoReferencia p where p.factura.proveedorId = :proveedor")
+                    .setParameter("proveedor", PROVEEDOR)
+                    .executeUpdate();
+            session.createMutationQuery("delete from Factura f where f.proveedorId = :proveedor")
+                    .setParameter("proveedor", PROVEEDOR)
+                    .executeUpdate();
+        });
+    }
+
+    @TearDown
+    public void cerrar() {
+        sessionFactory.close();
+        dataSource.close();
+    }
+
+    @Benchmark
+    public Long guardarFactura() {
+        Factura factura = Factura.builder()
+                .proveedorId(PROVEEDOR)
+                .totalFactura(BigDecimal.valueOf(1000L * pedidosPorFactura, 2))
+                .build();
+        for (int i = 0; i < pedidosPorFactura; i++) {
+            factura.agregarPedido(PedidoReferencia.builder()
+                    .pedidoId(siguientePedido++)
+                    .total(BigDecimal.valueOf(1000, 2))
+                    .build());
+        }
+        return sessionFactory.fromTransaction(session -> {
+            // La secuencia asigna el ID al persistir, sin enviar todavía la factura
+            session.persist(factura);
+            factura.getPedidos().forEach(pedido -> session.persist(PedidoFacturado.builder()
+                    .pedidoId(pedido.getPedidoId())
+                    .facturaId(factura.getId())
+                    .build()));
+            return factura.getId();
+        });
+    }
+}
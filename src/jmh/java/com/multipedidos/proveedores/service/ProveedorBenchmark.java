@@ -0,0 +1,48 @@
+package com.multipedidos.proveedores.service;
+
+import com.multipedidos.proveedores.dto.ProveedorDTO;
+import com.multipedidos.proveedores.model.Proveedor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Costo del mapeo de un proveedor a DTO.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProveedorBenchmark {
+
+    private ProveedorService proveedorService;
+    private Proveedor proveedor;
+
+    @Setup
+    public void preparar() {
+        proveedorService = new ProveedorService(null, null, null);
+        proveedor = Proveedor.builder()
+                .id(1L)
+                .nombre("Distribuidora Central")
+                .correo("ventas@distribuidora.com")
+                .fechaRegistro(LocalDateTime.now())
+                .build();
+    }
+
+    @Benchmark
+    public ProveedorDTO mapearProveedor() {
+        return proveedorService.mapearADTO(proveedor);
+    }
+}
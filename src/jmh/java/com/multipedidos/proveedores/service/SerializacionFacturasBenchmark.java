@@ -0,0 +1,82 @@
+package com.multipedidos.proveedores.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.multipedidos.proveedores.dto.FacturaDTO;
+import com.multipedidos.proveedores.dto.PedidoReferenciaDTO;
+import com.multipedidos.proveedores.model.Factura;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Costo de serializar a JSON una página de facturas, con el ObjectMapper configurado como
+ * en la aplicación.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializacionFacturasBenchmark {
+
+    @Param({"50", "500"})
+    private int cantidadFacturas;
+
+    @Param({"0", "1", "10"})
+    private int pedidosPorFactura;
+
+    private ObjectWriter escritor;
+    private List<FacturaDTO> facturas;
+
+    @Setup
+    public void preparar() {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        escritor = objectMapper.writerFor(objectMapper.getTypeFactory()
+                .constructCollectionType(List.class, FacturaDTO.class));
+        facturas = IntStream.rangeClosed(1, cantidadFacturas)
+                .mapToObj(this::factura)
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public byte[] serializarPagina() throws Exception {
+        return escritor.writeValueAsBytes(facturas);
+    }
+
+    /**
+     * Sin pedidos la factura se serializa como en los listados con {@code detalle=false}.
+     */
+    private FacturaDTO factura(int id) {
+        List<PedidoReferenciaDTO> pedidos = pedidosPorFactura == 0 ? null : IntStream.rangeClosed(1, pedidosPorFactura)
+                .mapToObj(i -> PedidoReferenciaDTO.builder()
+                        .pedidoId((long) id * 100 + i)
+                        .total(BigDecimal.valueOf(1000 + i * 37L, 2))
+                        .build())
+                .collect(Collectors.toList());
+        return FacturaDTO.builder()
+                .id((long) id)
+                .proveedorId((long) (id % 20 + 1))
+                .pedidos(pedidos)
+                .totalFactura(BigDecimal.valueOf(12345 + id, 2))
+                .estado(Factura.EstadoFactura.PENDIENTE)
+                .version(0L)
+                .build();
+    }
+}
@@ -0,0 +1,161 @@
+package com.multipedidos.proveedores.client;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.multipedidos.proveedores.client.PedidosClient.PedidoDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Transporte asíncrono basado en el {@link HttpClient} compartido del JDK.
+ *
+ * El cliente mantiene un pool de conexiones keep-alive (HTTP/2 multiplexado cuando el
+ * microservicio A lo soporta), por lo que no se abre una conexión por pedido. Las respuestas
+ * se parsean directamente desde el flujo de entrada a {@link PedidoDTO}, sin pasar por un String.
+ */
+@Component
+@ConditionalOnProperty(name = "microservice.clientes-pedidos.transporte", havingValue = "http", matchIfMissing = true)
+public class HttpPedidosTransporte implements PedidosTransporte {
+
+    private static final Logger log = LoggerFactory.getLogger(HttpPedidosTransporte.class);
+
+    private static final TypeReference<List<PedidoDTO>> LISTA_PEDIDOS = new TypeReference<>() {
+    };
+
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper;
+    private final ExecutorService executor;
+    private final String baseUrl;
+    private final String rutaPedido;
+    private final String rutaLote;
+    private final Duration timeoutLlamada;
+    private volatile boolean loteDisponible;
+
+    public HttpPedidosTransporte(@Qualifier("pedidosHttpClient") HttpClient httpClient,
+                                 ObjectMapper objectMapper,
+                                 @Qualifier("pedidosExecutor") ExecutorService executor,
+                                 @Value("${microservice.clientes-pedidos.url:http://localhost:8080}") String baseUrl,
+                                 @Value("${microservice.clientes-pedidos.ruta-pedido:/api/pedidos/}") String rutaPedido,
+                                 @Value("${microservice.clientes-pedidos.ruta-lote:}") String rutaLote,
+                                 @Value("${resilience4j.timelimiter.instances.pedidos.timeout-duration:2s}") Duration timeoutLlamada) {
+        this.httpClient = httpClient;
+        this.objectMapper = objectMapper;
+        this.executor = executor;
+        this.baseUrl = baseUrl;
+        this.rutaPedido = rutaPedido;
+        this.rutaLote = rutaLote;
+        this.timeoutLlamada = timeoutLlamada;
+        this.loteDisponible = !rutaLote.isBlank();
+    }
+
+    @Override
+    public CompletableFuture<PedidoDTO> obtenerPedido(Long pedidoId) {
+        log.info("Consultando pedido {} en microservicio A", pedidoId);
+        HttpRequest request = nuevaPeticion(baseUrl + rutaPedido + pedidoId);
+        HttpResponse.BodyHandler<Supplier<PedidoDTO>> manejador = manejador(
+                flujo -> objectMapper.readValue(flujo, PedidoDTO.class),
+                status -> status == 404 ? () -> null : () -> {
+                    throw errorHttp(status);
+                });
+        return httpClient.sendAsync(request, manejador)
+                .thenApplyAsync(response -> response.body().get(), executor);
+    }
+
+    @Override
+    public boolean soportaLote() {
+        return loteDisponible;
+    }
+
+    @Override
+    public CompletableFuture<List<PedidoDTO>> obtenerLote(List<Long> pedidoIds) {
+        log.info("Consultando lote de {} pedidos en microservicio A", pedidoIds.size());
+        String ids = pedidoIds.stream().map(String::valueOf).collect(Collectors.joining(","));
+        HttpRequest request = nuevaPeticion(baseUrl + rutaLote + "?ids=" + ids);
+        HttpResponse.BodyHandler<Supplier<List<PedidoDTO>>> manejador = manejador(
+                flujo -> objectMapper.readValue(flujo, LISTA_PEDIDOS),
+                status -> {
+                    if (status == 404 || status == 405 || status == 501) {
+                        log.warn("El microservicio A no expone {} (HTTP {}), se usarán consultas individuales", rutaLote, status);
+                        loteDisponible = false;
+                        return () -> {
+                            throw new LoteNoDisponibleException("Endpoint masivo no disponible: HTTP " + status);
+                        };
+                    }
+                    return () -> {
+                        throw errorHttp(status);
+                    };
+                });
+        return httpClient.sendAsync(request, manejador)
+                .thenApplyAsync(response -> response.body().get(), executor);
+    }
+
+    private HttpRequest nuevaPeticion(String url) {
+        return HttpRequest.newBuilder(URI.create(url))
+                .timeout(timeoutLlamada)
+                .header("Accept", "application/json")
+                .GET()
+                .build();
+    }
+
+    /**
+     * Construye un manejador que decide según el código HTTP sin cargar el cuerpo completo en memoria.
+     * El parseo se difiere a un {@link Supplier} que se evalúa en el pool del cliente, para no
+     * bloquear los hilos internos del {@link HttpClient} mientras llega el cuerpo.
+     */
+    private static <T> HttpResponse.BodyHandler<Supplier<T>> manejador(Parser<T> parser,
+                                                                       IntFunction<Supplier<T>> siNoEsExitosa) {
+        return info -> info.statusCode() == 200
+                ? HttpResponse.BodySubscribers.mapping(HttpResponse.BodySubscribers.ofInputStream(),
+                        flujo -> () -> parsear(parser, flujo))
+                : HttpResponse.BodySubscribers.replacing(siNoEsExitosa.apply(info.statusCode()));
+    }
+
+    private static IllegalStateException errorHttp(int status) {
+        return new IllegalStateException("Respuesta HTTP " + status + " del microservicio A");
+    }
+
+    /**
+     * Parsea el cuerpo y lo consume hasta el final antes de cerrarlo: si el flujo se cierra antes
+     * de recibir el fin del cuerpo, el cliente descarta la conexión en lugar de devolverla al pool.
+     */
+    private static <T> T parsear(Parser<T> parser, InputStream flujo) {
+        try (InputStream entrada = flujo) {
+            // Jackson cierra el flujo al terminar de leer el valor; el cierre queda a cargo de este método
+            T valor = parser.parsear(new FilterInputStream(entrada) {
+                @Override
+                public void close() {
+                }
+            });
+            entrada.transferTo(OutputStream.nullOutputStream());
+            return valor;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Parser<T> {
+        T parsear(InputStream flujo) throws IOException;
+    }
+}
@@ -0,0 +1,56 @@
+package com.multipedidos.proveedores.client;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.multipedidos.common.utils.IntegradorMicroservicios;
+import com.multipedidos.proveedores.client.PedidosClient.PedidoDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Transporte de respaldo basado en la utilería estática {@link IntegradorMicroservicios}.
+ * Cada llamada bloquea un hilo del pool de E/S mientras dura.
+ */
+@Component
+@ConditionalOnProperty(name = "microservice.clientes-pedidos.transporte", havingValue = "integrador")
+public class IntegradorPedidosTransporte implements PedidosTransporte {
+
+    private static final Logger log = LoggerFactory.getLogger(IntegradorPedidosTransporte.class);
+
+    private final ObjectMapper objectMapper;
+    private final String baseUrl;
+    private final ExecutorService ioExecutor;
+
+    public IntegradorPedidosTransporte(ObjectMapper objectMapper,
+                                       @Value("${microservice.clientes-pedidos.url:http://localhost:8080}") String baseUrl,
+                                       @Qualifier("pedidosIoExecutor") ExecutorService ioExecutor) {
+        this.objectMapper = objectMapper;
+        this.baseUrl = baseUrl;
+        this.ioExecutor = ioExecutor;
+    }
+
+    @Override
+    public CompletableFuture<PedidoDTO> obtenerPedido(Long pedidoId) {
+        return CompletableFuture.supplyAsync(() -> {
+            log.info("Consultando pedido {} en microservicio A", pedidoId);
+            return IntegradorMicroservicios.obtenerPedidoJson(baseUrl, pedidoId)
+                    .map(json -> parsearPedido(json, pedidoId))
+                    .orElse(null);
+        }, ioExecutor);
+    }
+
+    private PedidoDTO parsearPedido(String json, Long pedidoId) {
+        try {
+            return objectMapper.readValue(json, PedidoDTO.class);
+        } catch (Exception e) {
+            log.error("No se pudo parsear el pedido {} devuelto por el microservicio A", pedidoId, e);
+            throw new IllegalStateException("Respuesta inválida para el pedido " + pedidoId, e);
+        }
+    }
+}
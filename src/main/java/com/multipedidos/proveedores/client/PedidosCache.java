@@ -0,0 +1,98 @@
+package com.multipedidos.proveedores.client;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.multipedidos.proveedores.client.PedidosClient.PedidoDTO;
+import com.multipedidos.proveedores.dto.EstadisticasCacheDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Caché local de pedidos consultados al microservicio A.
+ *
+ * Guarda los pedidos encontrados durante {@code ttl-segundos} y los pedidos inexistentes
+ * (caché negativa) durante {@code ttl-negativo-segundos}, con un máximo de entradas.
+ * Los errores de consulta nunca se guardan.
+ */
+@Component
+public class PedidosCache {
+
+    private static final Logger log = LoggerFactory.getLogger(PedidosCache.class);
+
+    private final Cache<Long, Optional<PedidoDTO>> cache;
+
+    public PedidosCache(@Value("${microservice.clientes-pedidos.cache.tamano-maximo:10000}") long tamanoMaximo,
+                        @Value("${microservice.clientes-pedidos.cache.ttl-segundos:300}") long ttlSegundos,
+                        @Value("${microservice.clientes-pedidos.cache.ttl-negativo-segundos:30}") long ttlNegativoSegundos) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(tamanoMaximo)
+                .expireAfter(new ExpiracionPedido(Duration.ofSeconds(ttlSegundos), Duration.ofSeconds(ttlNegativoSegundos)))
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Devuelve las entradas presentes en caché; un {@code Optional} vacío indica un pedido
+     * que el microservicio A reportó como inexistente.
+     */
+    public Map<Long, Optional<PedidoDTO>> buscar(Collection<Long> pedidoIds) {
+        return cache.getAllPresent(pedidoIds);
+    }
+
+    /**
+     * Registra en caché los pedidos encontrados y los faltantes de una consulta.
+     */
+    public void registrar(ResultadoPedidos resultado) {
+        resultado.getEncontrados().forEach((pedidoId, pedido) -> cache.put(pedidoId, Optional.of(pedido)));
+        resultado.getFaltantes().forEach(pedidoId -> cache.put(pedidoId, Optional.empty()));
+    }
+
+    public void invalidar(Long pedidoId) {
+        log.info("Invalidando pedido {} de la caché", pedidoId);
+        cache.invalidate(pedidoId);
+    }
+
+    public void invalidarTodo() {
+        log.info("Invalidando toda la caché de pedidos");
+        cache.invalidateAll();
+    }
+
+    public EstadisticasCacheDTO obtenerEstadisticas() {
+        CacheStats stats = cache.stats();
+        return EstadisticasCacheDTO.builder()
+                .nombre("pedidos")
+                .entradas(cache.estimatedSize())
+                .aciertos(stats.hitCount())
+                .fallos(stats.missCount())
+                .desalojos(stats.evictionCount())
+                .tasaAciertos(stats.hitRate())
+                .build();
+    }
+
+    private record ExpiracionPedido(Duration ttl, Duration ttlNegativo) implements Expiry<Long, Optional<PedidoDTO>> {
+
+        @Override
+        public long expireAfterCreate(Long pedidoId, Optional<PedidoDTO> pedido, long currentTime) {
+            return pedido.isPresent() ? ttl.toNanos() : ttlNegativo.toNanos();
+        }
+
+        @Override
+        public long expireAfterUpdate(Long pedidoId, Optional<PedidoDTO> pedido, long currentTime, long currentDuration) {
+            return expireAfterCreate(pedidoId, pedido, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(Long pedidoId, Optional<PedidoDTO> pedido, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
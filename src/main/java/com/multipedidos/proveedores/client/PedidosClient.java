@@ -1,67 +1,132 @@
 package com.multipedidos.proveedores.client;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.multipedidos.common.exceptions.IntegracionMicroserviciosException;
-import com.multipedidos.common.utils.IntegradorMicroservicios;
+import com.multipedidos.proveedores.client.PedidosTransporte.LoteNoDisponibleException;
 
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
 /**
- * Cliente para comunicación con el microservicio de Clientes y Pedidos utilizando
- * la utilería del componente C.
+ * Cliente para comunicación con el microservicio de Clientes y Pedidos.
+ *
+ * La E/S se delega en un {@link PedidosTransporte}; este cliente agrega la caché local,
+ * la capa de resiliencia, la agrupación en lotes y el plazo total de cada consulta.
+ *
+ * Publica {@code pedidos.client.llamadas}, la duración de cada llamada al microservicio A según
+ * operación y resultado, y {@code pedidos.client.pedidos}, los pedidos resueltos según origen
+ * (caché o remoto) y resultado.
  */
 @Component
 public class PedidosClient {
 
     private static final Logger log = LoggerFactory.getLogger(PedidosClient.class);
 
-    private final ObjectMapper objectMapper;
-    private final String baseUrl;
+    private final PedidosTransporte transporte;
+    private final PedidosCache pedidosCache;
+    private final PedidosResiliencia resiliencia;
+    private final MeterRegistry meterRegistry;
+    private final int maxConcurrencia;
+    private final long timeoutTotalMs;
+    private final int tamanoLote;
 
-    public PedidosClient(ObjectMapper objectMapper,
-                         @Value("${microservice.clientes-pedidos.url:http://localhost:8080}") String baseUrl) {
-        this.objectMapper = objectMapper;
-        this.baseUrl = baseUrl;
+    public PedidosClient(PedidosTransporte transporte,
+                         PedidosCache pedidosCache,
+                         PedidosResiliencia resiliencia,
+                         MeterRegistry meterRegistry,
+                         @Value("${microservice.clientes-pedidos.validacion-concurrente:true}") boolean validacionConcurrente,
+                         @Value("${microservice.clientes-pedidos.max-concurrencia:16}") int maxConcurrencia,
+                         @Value("${microservice.clientes-pedidos.timeout-total-ms:5000}") long timeoutTotalMs,
+                         @Value("${microservice.clientes-pedidos.tamano-lote:100}") int tamanoLote) {
+        this.transporte = transporte;
+        this.pedidosCache = pedidosCache;
+        this.resiliencia = resiliencia;
+        this.meterRegistry = meterRegistry;
+        this.maxConcurrencia = validacionConcurrente ? Math.max(1, maxConcurrencia) : 1;
+        this.timeoutTotalMs = timeoutTotalMs;
+        this.tamanoLote = Math.max(1, tamanoLote);
     }
 
     /**
      * Obtiene un pedido del microservicio A.
      */
     public PedidoDTO obtenerPedido(Long pedidoId) {
-        try {
-            log.info("Consultando pedido {} en microservicio A", pedidoId);
-            Optional<String> respuesta = IntegradorMicroservicios.obtenerPedidoJson(baseUrl, pedidoId);
-            return respuesta
-                    .map(json -> parsearPedido(json, pedidoId))
-                    .orElse(null);
-        } catch (IntegracionMicroserviciosException e) {
-            log.error("Error de integración al consultar pedido {}: {}", pedidoId, e.getMessage());
-            return null;
-        } catch (Exception e) {
-            log.error("Error inesperado al consultar pedido {}: {}", pedidoId, e.getMessage());
-            return null;
+        return obtenerPedidos(List.of(pedidoId)).getEncontrados().get(pedidoId);
+    }
+
+    /**
+     * Obtiene un pedido del microservicio A de forma asíncrona.
+     * El futuro completa con {@code null} si el pedido no existe o no se pudo consultar.
+     */
+    public CompletableFuture<PedidoDTO> obtenerPedidoAsync(Long pedidoId) {
+        Optional<PedidoDTO> enCache = pedidosCache.buscar(List.of(pedidoId)).get(pedidoId);
+        if (enCache != null) {
+            return CompletableFuture.completedFuture(enCache.orElse(null));
         }
+        return consultarGrupo(List.of(pedidoId), new AtomicBoolean()).thenApply(resultado -> {
+            pedidosCache.registrar(resultado);
+            return resultado.getEncontrados().get(pedidoId);
+        });
     }
 
-    private PedidoDTO parsearPedido(String json, Long pedidoId) {
-        try {
-            return objectMapper.readValue(json, PedidoDTO.class);
-        } catch (Exception e) {
-            log.error("No se pudo parsear el pedido {} devuelto por el microservicio A", pedidoId, e);
-            return null;
+    /**
+     * Obtiene varios pedidos del microservicio A.
+     * Primero se resuelven los pedidos presentes en caché. El resto se deduplica y se agrupa en
+     * lotes de {@code tamano-lote}; cada lote se resuelve con una sola llamada al endpoint masivo
+     * cuando el transporte lo soporta, o con consultas individuales en paralelo cuando no.
+     * Como máximo {@code max-concurrencia} llamadas están en vuelo a la vez y todas comparten
+     * el plazo total.
+     */
+    public ResultadoPedidos obtenerPedidos(Collection<Long> pedidoIds) {
+        List<Long> ids = new ArrayList<>(new LinkedHashSet<>(pedidoIds));
+        ResultadoPedidos resultado = new ResultadoPedidos();
+
+        Map<Long, Optional<PedidoDTO>> enCache = pedidosCache.buscar(ids);
+        List<Long> pendientes = new ArrayList<>();
+        for (Long pedidoId : ids) {
+            Optional<PedidoDTO> pedido = enCache.get(pedidoId);
+            if (pedido == null) {
+                pendientes.add(pedidoId);
+            } else if (pedido.isPresent()) {
+                resultado.registrarEncontrado(pedidoId, pedido.get());
+            } else {
+                resultado.registrarFaltante(pedidoId);
+            }
+        }
+        contarPedidos("cache", resultado);
+
+        if (!pendientes.isEmpty()) {
+            ResultadoPedidos remoto = consultarRemoto(pendientes);
+            pedidosCache.registrar(remoto);
+            contarPedidos("remoto", remoto);
+            resultado.combinar(remoto);
         }
+        return resultado;
     }
 
     /**
@@ -72,6 +137,201 @@ public class PedidosClient {
         return pedido != null;
     }
 
+    private ResultadoPedidos consultarRemoto(List<Long> ids) {
+        List<List<Long>> grupos = particionar(ids, transporte.soportaLote() ? tamanoLote : 1);
+        AtomicBoolean vencido = new AtomicBoolean();
+        List<CompletableFuture<ResultadoPedidos>> respuestas =
+                lanzarConVentana(grupos, grupo -> consultarGrupo(grupo, vencido), vencido);
+
+        try {
+            CompletableFuture.allOf(respuestas.toArray(CompletableFuture[]::new))
+                    .get(timeoutTotalMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            vencido.set(true);
+            log.warn("Consulta de {} pedidos al microservicio A excedió el plazo total de {} ms", ids.size(), timeoutTotalMs);
+        } catch (InterruptedException e) {
+            vencido.set(true);
+            Thread.currentThread().interrupt();
+            log.warn("Consulta de pedidos al microservicio A interrumpida");
+        } catch (ExecutionException e) {
+            // Cada grupo resuelve sus propios errores, no se espera llegar aquí
+            log.error("Error inesperado al consultar pedidos: {}", e.getMessage());
+        }
+
+        return combinar(grupos, respuestas);
+    }
+
+    /**
+     * Resuelve un grupo de pedidos. Nunca falla: los pedidos que no se pudieron determinar
+     * se registran en el grupo de errores. Si {@code vencido} se marca, las consultas individuales
+     * pendientes no se lanzan.
+     */
+    private CompletableFuture<ResultadoPedidos> consultarGrupo(List<Long> grupo, AtomicBoolean vencido) {
+        if (grupo.size() == 1 || !transporte.soportaLote()) {
+            return consultarIndividualmente(particionar(grupo, 1), vencido);
+        }
+
+        Timer.Sample muestra = Timer.start(meterRegistry);
+        return resiliencia.ejecutar(() -> transporte.obtenerLote(grupo))
+                .whenComplete((pedidos, error) -> registrarLlamada(muestra, "lote",
+                        error == null ? "exito" : causa(error) instanceof LoteNoDisponibleException ? "no_disponible" : "error"))
+                .thenApply(pedidos -> {
+                    ResultadoPedidos resultado = new ResultadoPedidos();
+                    for (PedidoDTO pedido : pedidos) {
+                        if (pedido != null && pedido.getId() != null) {
+                            resultado.registrarEncontrado(pedido.getId(), pedido);
+                        }
+                    }
+                    grupo.forEach(resultado::registrarFaltante);
+                    return resultado;
+                })
+                .exceptionallyCompose(error -> {
+                    if (causa(error) instanceof LoteNoDisponibleException) {
+                        return consultarIndividualmente(particionar(grupo, 1), vencido);
+                    }
+                    return CompletableFuture.completedFuture(conErrores(grupo, error));
+                });
+    }
+
+    private CompletableFuture<ResultadoPedidos> consultarIndividualmente(List<List<Long>> individuales,
+                                                                         AtomicBoolean vencido) {
+        List<CompletableFuture<ResultadoPedidos>> respuestas =
+                lanzarConVentana(individuales, this::consultarPedido, vencido);
+        return CompletableFuture.allOf(respuestas.toArray(CompletableFuture[]::new))
+                .handle((v, error) -> combinar(individuales, respuestas));
+    }
+
+    private CompletableFuture<ResultadoPedidos> consultarPedido(List<Long> individual) {
+        Long pedidoId = individual.get(0);
+        Timer.Sample muestra = Timer.start(meterRegistry);
+        return resiliencia.ejecutar(() -> transporte.obtenerPedido(pedidoId))
+                .handle((pedido, error) -> {
+                    registrarLlamada(muestra, "pedido",
+                            error != null ? "error" : pedido != null ? "encontrado" : "no_encontrado");
+                    if (error != null) {
+                        return conErrores(individual, error);
+                    }
+                    ResultadoPedidos resultado = new ResultadoPedidos();
+                    if (pedido != null) {
+                        resultado.registrarEncontrado(pedidoId, pedido);
+                    } else {
+                        resultado.registrarFaltante(pedidoId);
+                    }
+                    return resultado;
+                });
+    }
+
+    /**
+     * Lanza las consultas manteniendo como máximo {@code max-concurrencia} en vuelo: cada consulta
+     * que termina libera su lugar y lanza la siguiente pendiente. Si el plazo total vence, no se
+     * lanzan más.
+     *
+     * Una consulta puede completar en el mismo hilo que la lanzó (circuito abierto, bulkhead
+     * lleno), así que el lanzamiento es iterativo: quien encuentra otro lanzamiento en curso solo
+     * lo anota y el hilo que está lanzando repite la vuelta, sin anidar llamadas en la pila.
+     */
+    private <T, R> List<CompletableFuture<R>> lanzarConVentana(List<T> tareas,
+                                                              Function<T, CompletableFuture<R>> consulta,
+                                                              AtomicBoolean vencido) {
+        List<CompletableFuture<R>> respuestas = new ArrayList<>(tareas.size());
+        tareas.forEach(t -> respuestas.add(new CompletableFuture<>()));
+        AtomicInteger siguiente = new AtomicInteger();
+        AtomicInteger libres = new AtomicInteger(maxConcurrencia);
+        AtomicInteger solicitudes = new AtomicInteger();
+
+        Runnable lanzar = new Runnable() {
+            @Override
+            public void run() {
+                if (solicitudes.getAndIncrement() != 0) {
+                    return;
+                }
+                do {
+                    while (libres.get() > 0 && siguiente.get() < tareas.size()) {
+                        int i = siguiente.getAndIncrement();
+                        CompletableFuture<R> respuesta = respuestas.get(i);
+                        if (vencido.get()) {
+                            respuesta.cancel(false);
+                            continue;
+                        }
+                        libres.decrementAndGet();
+                        consulta.apply(tareas.get(i)).whenComplete((valor, error) -> {
+                            if (error != null) {
+                                respuesta.completeExceptionally(error);
+                            } else {
+                                respuesta.complete(valor);
+                            }
+                            libres.incrementAndGet();
+                            run();
+                        });
+                    }
+                } while (solicitudes.decrementAndGet() != 0);
+            }
+        };
+        lanzar.run();
+        return respuestas;
+    }
+
+    private void registrarLlamada(Timer.Sample muestra, String operacion, String resultado) {
+        muestra.stop(meterRegistry.timer("pedidos.client.llamadas", "operacion", operacion, "resultado", resultado));
+    }
+
+    private void contarPedidos(String origen, ResultadoPedidos resultado) {
+        contar(origen, "encontrado", resultado.getEncontrados().size());
+        contar(origen, "no_encontrado", resultado.getFaltantes().size());
+        contar(origen, "error", resultado.getErrores().size());
+    }
+
+    private void contar(String origen, String resultado, int cantidad) {
+        if (cantidad > 0) {
+            meterRegistry.counter("pedidos.client.pedidos", "origen", origen, "resultado", resultado).increment(cantidad);
+        }
+    }
+
+    private static ResultadoPedidos combinar(List<List<Long>> grupos, List<CompletableFuture<ResultadoPedidos>> respuestas) {
+        ResultadoPedidos resultado = new ResultadoPedidos();
+        for (int i = 0; i < grupos.size(); i++) {
+            CompletableFuture<ResultadoPedidos> respuesta = respuestas.get(i);
+            if (respuesta.isDone() && !respuesta.isCompletedExceptionally()) {
+                resultado.combinar(respuesta.join());
+            } else {
+                resultado.registrarErrores(grupos.get(i));
+            }
+        }
+        return resultado;
+    }
+
+    private static ResultadoPedidos conErrores(List<Long> pedidoIds, Throwable error) {
+        Throwable causa = causa(error);
+        if (causa instanceof CallNotPermittedException) {
+            log.warn("Circuito hacia el microservicio A abierto, los pedidos {} quedan sin validar", pedidoIds);
+        } else if (causa instanceof TimeoutException) {
+            log.warn("Pedidos {} sin respuesta del microservicio A dentro del plazo por llamada", pedidoIds);
+        } else if (causa instanceof IntegracionMicroserviciosException) {
+            log.error("Error de integración al consultar pedidos {}: {}", pedidoIds, causa.getMessage());
+        } else {
+            log.error("Error inesperado al consultar pedidos {}: {}", pedidoIds, causa.getMessage());
+        }
+        ResultadoPedidos resultado = new ResultadoPedidos();
+        resultado.registrarErrores(pedidoIds);
+        return resultado;
+    }
+
+    private static Throwable causa(Throwable error) {
+        Throwable causa = error;
+        while ((causa instanceof CompletionException || causa instanceof ExecutionException) && causa.getCause() != null) {
+            causa = causa.getCause();
+        }
+        return causa;
+    }
+
+    private static List<List<Long>> particionar(List<Long> ids, int tamano) {
+        List<List<Long>> grupos = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i += tamano) {
+            grupos.add(ids.subList(i, Math.min(ids.size(), i + tamano)));
+        }
+        return grupos;
+    }
+
     /**
      * DTO para recibir información de pedidos del microservicio A.
      */
@@ -95,5 +355,3 @@ public class PedidosClient {
         private BigDecimal precio;
     }
 }
-
-
@@ -0,0 +1,66 @@
+package com.multipedidos.proveedores.client;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.timelimiter.TimeLimiterRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Capa de resiliencia para las llamadas salientes al microservicio A.
+ *
+ * Cada llamada pasa, de afuera hacia adentro, por un bulkhead (limita las llamadas simultáneas),
+ * un circuit breaker (rechaza de inmediato mientras el microservicio A está degradado) y el plazo
+ * por llamada configurado en el time limiter. El bulkhead queda fuera del circuit breaker para que
+ * sus rechazos, que son locales, no cuenten como fallos del microservicio A. Las llamadas
+ * rechazadas o vencidas fallan y el cliente las reporta como pedidos con estado desconocido.
+ */
+@Component
+public class PedidosResiliencia {
+
+    private static final Logger log = LoggerFactory.getLogger(PedidosResiliencia.class);
+
+    static final String INSTANCIA = "pedidos";
+
+    private final CircuitBreaker circuitBreaker;
+    private final Bulkhead bulkhead;
+    private final long plazoMs;
+
+    public PedidosResiliencia(CircuitBreakerRegistry circuitBreakerRegistry,
+                              BulkheadRegistry bulkheadRegistry,
+                              TimeLimiterRegistry timeLimiterRegistry,
+                              MeterRegistry meterRegistry) {
+        this.circuitBreaker = circuitBreakerRegistry.circuitBreaker(INSTANCIA);
+        this.bulkhead = bulkheadRegistry.bulkhead(INSTANCIA);
+        this.plazoMs = timeLimiterRegistry.timeLimiter(INSTANCIA).getTimeLimiterConfig().getTimeoutDuration().toMillis();
+
+        circuitBreaker.getEventPublisher().onStateTransition(evento -> {
+            log.warn("Circuit breaker '{}' cambió de {} a {}", INSTANCIA,
+                    evento.getStateTransition().getFromState(), evento.getStateTransition().getToState());
+            meterRegistry.counter("pedidos.client.circuitbreaker.transiciones",
+                    "desde", evento.getStateTransition().getFromState().name(),
+                    "hacia", evento.getStateTransition().getToState().name()).increment();
+        });
+    }
+
+    /**
+     * Ejecuta una llamada asíncrona al microservicio A protegida por bulkhead, circuit breaker y plazo.
+     * El futuro devuelto falla con {@code CallNotPermittedException}, {@code BulkheadFullException}
+     * o {@code TimeoutException} cuando la llamada se rechaza o vence.
+     */
+    public <T> CompletableFuture<T> ejecutar(Supplier<CompletionStage<T>> llamada) {
+        Supplier<CompletionStage<T>> conPlazo = () -> llamada.get().toCompletableFuture()
+                .orTimeout(plazoMs, TimeUnit.MILLISECONDS);
+        Supplier<CompletionStage<T>> conCircuitBreaker = CircuitBreaker.decorateCompletionStage(circuitBreaker, conPlazo);
+        return Bulkhead.decorateCompletionStage(bulkhead, conCircuitBreaker).get().toCompletableFuture();
+    }
+}
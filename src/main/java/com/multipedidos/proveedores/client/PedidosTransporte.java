@@ -0,0 +1,46 @@
+package com.multipedidos.proveedores.client;
+
+import com.multipedidos.proveedores.client.PedidosClient.PedidoDTO;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Transporte de E/S hacia el microservicio A utilizado por {@link PedidosClient}.
+ *
+ * La implementación se elige con {@code microservice.clientes-pedidos.transporte}:
+ * {@code http} (cliente HTTP asíncrono compartido) o {@code integrador} (utilería estática
+ * del componente C, se mantiene como modo de respaldo).
+ */
+public interface PedidosTransporte {
+
+    /**
+     * Obtiene un pedido. El futuro completa con {@code null} si el pedido no existe y
+     * excepcionalmente si no se pudo determinar.
+     */
+    CompletableFuture<PedidoDTO> obtenerPedido(Long pedidoId);
+
+    /**
+     * Indica si el transporte puede consultar varios pedidos en una sola llamada.
+     */
+    default boolean soportaLote() {
+        return false;
+    }
+
+    /**
+     * Obtiene los pedidos existentes de un lote. Los IDs ausentes del resultado no existen.
+     * Completa con {@link LoteNoDisponibleException} si el microservicio A no expone el endpoint.
+     */
+    default CompletableFuture<List<PedidoDTO>> obtenerLote(List<Long> pedidoIds) {
+        return CompletableFuture.failedFuture(new LoteNoDisponibleException("El transporte no soporta consultas por lote"));
+    }
+
+    /**
+     * Señala que el endpoint masivo no está disponible y el lote debe resolverse con consultas individuales.
+     */
+    class LoteNoDisponibleException extends RuntimeException {
+        public LoteNoDisponibleException(String message) {
+            super(message);
+        }
+    }
+}
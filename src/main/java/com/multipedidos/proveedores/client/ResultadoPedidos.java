@@ -0,0 +1,67 @@
+package com.multipedidos.proveedores.client;
+
+import com.multipedidos.proveedores.client.PedidosClient.PedidoDTO;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Resultado de una consulta de varios pedidos al microservicio A.
+ *
+ * Cada pedido consultado termina exactamente en uno de tres grupos: encontrado,
+ * faltante (el microservicio A respondió que no existe) o con error (no se pudo
+ * determinar por fallo de red, de parseo o por exceder el plazo).
+ */
+public class ResultadoPedidos {
+
+    private final Map<Long, PedidoDTO> encontrados = new LinkedHashMap<>();
+    private final Set<Long> faltantes = new LinkedHashSet<>();
+    private final Set<Long> errores = new LinkedHashSet<>();
+
+    public void registrarEncontrado(Long pedidoId, PedidoDTO pedido) {
+        faltantes.remove(pedidoId);
+        errores.remove(pedidoId);
+        encontrados.put(pedidoId, pedido);
+    }
+
+    public void registrarFaltante(Long pedidoId) {
+        if (!encontrados.containsKey(pedidoId)) {
+            errores.remove(pedidoId);
+            faltantes.add(pedidoId);
+        }
+    }
+
+    public void registrarErrores(Collection<Long> pedidoIds) {
+        for (Long pedidoId : pedidoIds) {
+            if (!encontrados.containsKey(pedidoId) && !faltantes.contains(pedidoId)) {
+                errores.add(pedidoId);
+            }
+        }
+    }
+
+    public void combinar(ResultadoPedidos otro) {
+        otro.encontrados.forEach(this::registrarEncontrado);
+        otro.faltantes.forEach(this::registrarFaltante);
+        registrarErrores(otro.errores);
+    }
+
+    public boolean existe(Long pedidoId) {
+        return encontrados.containsKey(pedidoId);
+    }
+
+    public Map<Long, PedidoDTO> getEncontrados() {
+        return Collections.unmodifiableMap(encontrados);
+    }
+
+    public Set<Long> getFaltantes() {
+        return Collections.unmodifiableSet(faltantes);
+    }
+
+    public Set<Long> getErrores() {
+        return Collections.unmodifiableSet(errores);
+    }
+}
@@ -0,0 +1,77 @@
+package com.multipedidos.proveedores.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.spi.CachingProvider;
+import java.net.URI;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Configuración de la caché de segundo nivel de Hibernate.
+ *
+ * Crea las regiones en un {@link CacheManager} JCache de Caffeine con el tamaño y la vigencia
+ * definidos en {@code cache-segundo-nivel.regiones} y lo entrega a Hibernate, que falla al
+ * iniciar si alguna entidad usa una región no declarada.
+ */
+@Configuration
+public class CacheSegundoNivelConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(CacheSegundoNivelConfig.class);
+
+    @Bean(destroyMethod = "close")
+    public CacheManager cacheSegundoNivelManager(Environment environment) {
+        Map<String, Region> regiones = Binder.get(environment)
+                .bind("cache-segundo-nivel.regiones", Bindable.mapOf(String.class, Region.class))
+                .orElse(Map.of());
+        // Un administrador propio por contexto: el predeterminado del proveedor es único por class
+        // loader y un segundo contexto (tests, reinicios de devtools) no podría volver a crear las regiones
+        CachingProvider proveedor = Caching.getCachingProvider(CaffeineCachingProvider.class.getName());
+        CacheManager cacheManager = proveedor.getCacheManager(
+                URI.create("cache-segundo-nivel-" + UUID.randomUUID()), proveedor.getDefaultClassLoader());
+        regiones.forEach((nombre, region) -> {
+            CaffeineConfiguration<Object, Object> configuracion = new CaffeineConfiguration<>();
+            // Hibernate ya guarda copias desensambladas: no hace falta serializar cada entrada
+            configuracion.setStoreByValue(false);
+            configuracion.setStatisticsEnabled(true);
+            if (region.tamanoMaximo() != null) {
+                configuracion.setMaximumSize(OptionalLong.of(region.tamanoMaximo()));
+            }
+            if (region.ttlSegundos() != null) {
+                configuracion.setExpireAfterWrite(OptionalLong.of(TimeUnit.SECONDS.toNanos(region.ttlSegundos())));
+            }
+            cacheManager.createCache(nombre, configuracion);
+            log.info("Región de caché de segundo nivel '{}': máximo {} entradas, TTL {} s",
+                    nombre, region.tamanoMaximo(), region.ttlSegundos());
+        });
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer cacheSegundoNivelCustomizer(CacheManager cacheSegundoNivelManager) {
+        return propiedades -> {
+            propiedades.put(ConfigSettings.CACHE_MANAGER, cacheSegundoNivelManager);
+            propiedades.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+        };
+    }
+
+    /**
+     * Límites de una región; sin {@code ttlSegundos} las entradas solo salen por tamaño.
+     */
+    public record Region(Long tamanoMaximo, Long ttlSegundos) {
+    }
+}
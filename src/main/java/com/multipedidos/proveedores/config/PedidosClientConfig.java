@@ -0,0 +1,96 @@
+package com.multipedidos.proveedores.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.core.task.support.ExecutorServiceAdapter;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Configuración de los recursos compartidos por el cliente del microservicio A.
+ *
+ * El pool dedicado parsea las respuestas del cliente HTTP asíncrono, de modo que una factura
+ * con muchos pedidos no consuma hilos de Tomcat.
+ *
+ * Con {@code spring.threads.virtual.enabled=true} en Java 21 o superior, los pools se reemplazan
+ * por executors de hilos virtuales: cada tarea corre en un hilo virtual propio y la concurrencia
+ * hacia el microservicio A queda limitada solo por el bulkhead.
+ */
+@Configuration
+public class PedidosClientConfig {
+
+    @Bean(name = "pedidosExecutor", destroyMethod = "shutdownNow")
+    @ConditionalOnThreading(Threading.PLATFORM)
+    public ExecutorService pedidosExecutor(
+            @Value("${microservice.clientes-pedidos.hilos:8}") int hilos) {
+        AtomicInteger contador = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread hilo = new Thread(runnable, "pedidos-client-" + contador.incrementAndGet());
+            hilo.setDaemon(true);
+            return hilo;
+        };
+        return Executors.newFixedThreadPool(hilos, threadFactory);
+    }
+
+    /**
+     * Pool donde el transporte {@code integrador} ejecuta las llamadas bloqueantes al microservicio A
+     * para poder abandonarlas al vencer el plazo por llamada. Se acota al doble del bulkhead para
+     * absorber las llamadas vencidas que aún no liberaron su hilo; por encima de eso se rechazan.
+     */
+    @Bean(name = "pedidosIoExecutor", destroyMethod = "shutdownNow")
+    @ConditionalOnThreading(Threading.PLATFORM)
+    public ExecutorService pedidosIoExecutor(
+            @Value("${resilience4j.bulkhead.instances.pedidos.max-concurrent-calls:32}") int maxLlamadas) {
+        AtomicInteger contador = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread hilo = new Thread(runnable, "pedidos-io-" + contador.incrementAndGet());
+            hilo.setDaemon(true);
+            return hilo;
+        };
+        return new ThreadPoolExecutor(0, maxLlamadas * 2, 60L, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), threadFactory, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @Bean(name = "pedidosExecutor", destroyMethod = "")
+    @ConditionalOnThreading(Threading.VIRTUAL)
+    public ExecutorService pedidosExecutorVirtual() {
+        return new ExecutorServiceAdapter(new VirtualThreadTaskExecutor("pedidos-client-"));
+    }
+
+    /**
+     * Sin tope de hilos: una llamada vencida retiene solo un hilo virtual hasta que el
+     * microservicio A responde, y el bulkhead sigue acotando las llamadas en curso.
+     */
+    @Bean(name = "pedidosIoExecutor", destroyMethod = "")
+    @ConditionalOnThreading(Threading.VIRTUAL)
+    public ExecutorService pedidosIoExecutorVirtual() {
+        return new ExecutorServiceAdapter(new VirtualThreadTaskExecutor("pedidos-io-"));
+    }
+
+    /**
+     * Cliente HTTP compartido por todas las consultas: reutiliza conexiones keep-alive y negocia
+     * HTTP/2 cuando el microservicio A lo soporta, volviendo a HTTP/1.1 en caso contrario.
+     * Conserva su propio executor interno: el parseo bloquea leyendo el cuerpo y, si compartiera
+     * hilos con el cliente, podría dejarlo sin hilos para recibir ese mismo cuerpo.
+     */
+    @Bean(name = "pedidosHttpClient")
+    public HttpClient pedidosHttpClient(
+            @Value("${microservice.clientes-pedidos.timeout-conexion-ms:2000}") long timeoutConexionMs) {
+        return HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofMillis(timeoutConexionMs))
+                .build();
+    }
+}
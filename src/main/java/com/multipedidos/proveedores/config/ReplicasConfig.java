@@ -0,0 +1,69 @@
+package com.multipedidos.proveedores.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+/**
+ * Lecturas en réplicas de la base.
+ *
+ * Con {@code replicas.habilitado} reemplaza el DataSource de Spring Boot por uno que entrega
+ * las transacciones de solo lectura a las réplicas de {@code replicas.instancias} y el resto al
+ * primario definido en {@code spring.datasource}. El proxy perezoso retrasa la obtención de la
+ * conexión hasta la primera sentencia, cuando ya se sabe si la transacción es de solo lectura.
+ * Flyway, la validación del esquema y las consultas sin transacción usan el primario.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "replicas", name = "habilitado", havingValue = "true")
+public class ReplicasConfig {
+
+    @Bean(destroyMethod = "close")
+    public RuteoReplicas ruteoReplicas(DataSourceProperties dataSourceProperties, Environment environment,
+                                       MeterRegistry meterRegistry) {
+        Binder binder = Binder.get(environment);
+        Propiedades propiedades = binder.bind("replicas", Propiedades.class)
+                .orElseThrow(() -> new IllegalStateException("Falta la configuración de replicas"));
+        if (propiedades.instancias() == null || propiedades.instancias().isEmpty()) {
+            throw new IllegalStateException("replicas.habilitado requiere al menos una entrada en replicas.instancias");
+        }
+
+        HikariDataSource primario = dataSourceProperties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        binder.bind("spring.datasource.hikari", Bindable.ofInstance(primario));
+        if (primario.getPoolName() == null) {
+            primario.setPoolName("primario");
+        }
+        return new RuteoReplicas(primario, propiedades, binder, meterRegistry);
+    }
+
+    @Bean
+    public DataSource dataSource(RuteoReplicas ruteoReplicas) {
+        return new LazyConnectionDataSourceProxy(ruteoReplicas.getDataSourceRuteado());
+    }
+
+    /**
+     * Configuración de {@code replicas}. Sin {@code retrasoMaximoMs} se usa 5000 ms y sin
+     * {@code verificacionMs}, 2000 ms.
+     */
+    public record Propiedades(boolean habilitado, Long retrasoMaximoMs, Long verificacionMs, String consultaRetraso,
+                              List<Instancia> instancias) {
+    }
+
+    /**
+     * Conexión a una réplica; sin usuario ni contraseña se usan los del primario. El pool de
+     * cada réplica toma la configuración de {@code replicas.hikari}.
+     */
+    public record Instancia(String nombre, String url, String username, String password) {
+    }
+}
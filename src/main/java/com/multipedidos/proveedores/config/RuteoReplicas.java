@@ -0,0 +1,224 @@
+package com.multipedidos.proveedores.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pools del primario y de las réplicas, con la elección de la conexión de cada transacción.
+ *
+ * Las transacciones de solo lectura se reparten en turnos entre las réplicas disponibles; el
+ * resto, y las lecturas cuando ninguna réplica está disponible, van al primario. Una réplica
+ * deja de estar disponible si su retraso supera {@code retrasoMaximoMs} o si no entrega
+ * conexiones, y vuelve a estarlo en la siguiente verificación que la encuentre al día. La
+ * verificación corre en un hilo propio: en el planificador compartido la demorarían las demás
+ * tareas programadas y una réplica atrasada seguiría recibiendo lecturas.
+ */
+@Slf4j
+public class RuteoReplicas implements AutoCloseable {
+
+    static final long RETRASO_MAXIMO_MS = 5000;
+    static final long VERIFICACION_MS = 2000;
+
+    /**
+     * Retraso de réplica de PostgreSQL en milisegundos. Sin WAL pendiente de aplicar el retraso
+     * es 0 aunque el primario lleve tiempo sin escribir (tras reiniciar la réplica la posición
+     * recibida vuelve al inicio del segmento y queda por detrás de la aplicada). Una base que no
+     * está en recuperación, como una segunda instancia independiente en pruebas locales, también
+     * informa 0.
+     */
+    static final String CONSULTA_RETRASO = """
+            select case
+                when not pg_is_in_recovery() then 0
+                when pg_last_wal_receive_lsn() <= pg_last_wal_replay_lsn() then 0
+                else coalesce(extract(epoch from now() - pg_last_xact_replay_timestamp()) * 1000, 0)
+            end""";
+
+    private final HikariDataSource primario;
+    private final List<Replica> replicas = new ArrayList<>();
+    private final long retrasoMaximoMs;
+    private final String consultaRetraso;
+    private final AtomicInteger turno = new AtomicInteger();
+    private final Counter lecturasEnReplica;
+    private final Counter lecturasEnPrimario;
+    private final DataSource dataSourceRuteado = new DataSourceRuteado();
+    private final ScheduledExecutorService verificador = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread hilo = new Thread(runnable, "replicas-verificacion");
+        hilo.setDaemon(true);
+        return hilo;
+    });
+
+    RuteoReplicas(HikariDataSource primario, ReplicasConfig.Propiedades propiedades, Binder binder,
+                  MeterRegistry meterRegistry) {
+        this.primario = primario;
+        this.retrasoMaximoMs = Objects.requireNonNullElse(propiedades.retrasoMaximoMs(), RETRASO_MAXIMO_MS);
+        this.consultaRetraso = Objects.requireNonNullElse(propiedades.consultaRetraso(), CONSULTA_RETRASO);
+        MicrometerMetricsTrackerFactory metricasPool = new MicrometerMetricsTrackerFactory(meterRegistry);
+        primario.setMetricsTrackerFactory(metricasPool);
+
+        List<ReplicasConfig.Instancia> instancias = propiedades.instancias();
+        for (int i = 0; i < instancias.size(); i++) {
+            ReplicasConfig.Instancia instancia = instancias.get(i);
+            String nombre = instancia.nombre() != null ? instancia.nombre() : "replica-" + (i + 1);
+            HikariDataSource pool = new HikariDataSource();
+            binder.bind("replicas.hikari", Bindable.ofInstance(pool));
+            pool.setPoolName(nombre);
+            pool.setJdbcUrl(instancia.url());
+            pool.setUsername(Objects.requireNonNullElse(instancia.username(), primario.getUsername()));
+            pool.setPassword(Objects.requireNonNullElse(instancia.password(), primario.getPassword()));
+            pool.setDriverClassName(primario.getDriverClassName());
+            pool.setReadOnly(true);
+            // Una réplica caída no debe demorar el arranque: se marca no disponible y se reintenta
+            pool.setInitializationFailTimeout(-1);
+            pool.setMetricsTrackerFactory(metricasPool);
+            Replica replica = new Replica(nombre, pool);
+            replicas.add(replica);
+            Gauge.builder("facturacion.replicas.retraso", replica, r -> r.retrasoMs)
+                    .description("Retraso de la réplica respecto del primario medido en la última verificación")
+                    .baseUnit("milliseconds")
+                    .tag("replica", nombre)
+                    .register(meterRegistry);
+            Gauge.builder("facturacion.replicas.disponible", replica, r -> r.disponible ? 1 : 0)
+                    .description("1 si la réplica recibe lecturas")
+                    .tag("replica", nombre)
+                    .register(meterRegistry);
+        }
+        this.lecturasEnReplica = Counter.builder("facturacion.replicas.lecturas")
+                .description("Transacciones de solo lectura según la base que las atendió")
+                .tag("destino", "replica")
+                .register(meterRegistry);
+        this.lecturasEnPrimario = Counter.builder("facturacion.replicas.lecturas")
+                .description("Transacciones de solo lectura según la base que las atendió")
+                .tag("destino", "primario")
+                .register(meterRegistry);
+        verificarRetraso();
+        replicas.stream()
+                .filter(replica -> !replica.disponible)
+                .forEach(replica -> log.warn("Réplica '{}' no disponible al iniciar, las lecturas van al primario",
+                        replica.nombre));
+        long verificacionMs = Objects.requireNonNullElse(propiedades.verificacionMs(), VERIFICACION_MS);
+        verificador.scheduleWithFixedDelay(this::verificarRetraso, verificacionMs, verificacionMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * DataSource que elige la base en cada {@code getConnection}; debe usarse detrás de un
+     * proxy perezoso para que la elección ocurra dentro de la transacción.
+     */
+    public DataSource getDataSourceRuteado() {
+        return dataSourceRuteado;
+    }
+
+    /**
+     * Mide el retraso de cada réplica y actualiza su disponibilidad.
+     */
+    void verificarRetraso() {
+        for (Replica replica : replicas) {
+            try (Connection conexion = replica.pool.getConnection();
+                 Statement sentencia = conexion.createStatement()) {
+                sentencia.setQueryTimeout(5);
+                try (ResultSet resultado = sentencia.executeQuery(consultaRetraso)) {
+                    resultado.next();
+                    replica.retrasoMs = resultado.getLong(1);
+                }
+                if (replica.retrasoMs > retrasoMaximoMs) {
+                    replica.marcarNoDisponible("retraso de " + replica.retrasoMs + " ms, máximo " + retrasoMaximoMs + " ms");
+                } else {
+                    replica.marcarDisponible();
+                }
+            } catch (SQLException | RuntimeException e) {
+                replica.marcarNoDisponible(e.getMessage());
+            }
+        }
+    }
+
+    private Replica elegirReplica() {
+        int inicio = Math.floorMod(turno.getAndIncrement(), replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get((inicio + i) % replicas.size());
+            if (replica.disponible) {
+                return replica;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void close() {
+        verificador.shutdownNow();
+        replicas.forEach(replica -> replica.pool.close());
+        primario.close();
+    }
+
+    private final class DataSourceRuteado extends AbstractDataSource {
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            if (TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+                for (Replica replica = elegirReplica(); replica != null; replica = elegirReplica()) {
+                    try {
+                        Connection conexion = replica.pool.getConnection();
+                        lecturasEnReplica.increment();
+                        return conexion;
+                    } catch (SQLException e) {
+                        replica.marcarNoDisponible(e.getMessage());
+                    }
+                }
+                lecturasEnPrimario.increment();
+            }
+            return primario.getConnection();
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            throw new SQLFeatureNotSupportedException("Las credenciales se definen por pool");
+        }
+    }
+
+    private static final class Replica {
+
+        private final String nombre;
+        private final HikariDataSource pool;
+        private volatile boolean disponible;
+        private volatile long retrasoMs;
+
+        Replica(String nombre, HikariDataSource pool) {
+            this.nombre = nombre;
+            this.pool = pool;
+        }
+
+        synchronized void marcarDisponible() {
+            if (!disponible) {
+                disponible = true;
+                log.info("Réplica '{}' disponible para lecturas (retraso {} ms)", nombre, retrasoMs);
+            }
+        }
+
+        synchronized void marcarNoDisponible(String motivo) {
+            if (disponible) {
+                disponible = false;
+                log.warn("Réplica '{}' fuera de servicio, las lecturas van al primario: {}", nombre, motivo);
+            }
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.multipedidos.proveedores.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Configuración de los workers que procesan las facturas enviadas en modo asíncrono.
+ */
+@Configuration
+@EnableScheduling
+public class TrabajosFacturasConfig {
+
+    @Bean(name = "trabajosFacturasExecutor", destroyMethod = "shutdownNow")
+    public ExecutorService trabajosFacturasExecutor(
+            @Value("${facturacion.trabajos.hilos:4}") int hilos) {
+        AtomicInteger contador = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread hilo = new Thread(runnable, "trabajos-facturas-" + contador.incrementAndGet());
+            hilo.setDaemon(true);
+            return hilo;
+        };
+        return Executors.newFixedThreadPool(hilos, threadFactory);
+    }
+}
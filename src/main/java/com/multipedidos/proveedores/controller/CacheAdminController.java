@@ -0,0 +1,103 @@
+package com.multipedidos.proveedores.controller;
+
+import com.multipedidos.proveedores.client.PedidosCache;
+import com.multipedidos.proveedores.dto.EstadisticasCacheDTO;
+import com.multipedidos.proveedores.service.CacheSegundoNivelService;
+import com.multipedidos.proveedores.service.PedidosFacturados;
+import com.multipedidos.proveedores.service.ProveedoresCache;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * Controlador REST para administración de las cachés locales.
+ */
+@RestController
+@RequestMapping("/api/admin/cache")
+@RequiredArgsConstructor
+@Tag(name = "Administración", description = "API para administración de cachés")
+public class CacheAdminController {
+
+    private final PedidosCache pedidosCache;
+    private final ProveedoresCache proveedoresCache;
+    private final CacheSegundoNivelService cacheSegundoNivelService;
+    private final PedidosFacturados pedidosFacturados;
+
+    @GetMapping("/pedidos")
+    @Operation(summary = "Estadísticas de la caché de pedidos", description = "Obtiene aciertos, fallos y desalojos de la caché de pedidos")
+    @ApiResponse(responseCode = "200", description = "Estadísticas obtenidas correctamente")
+    public ResponseEntity<EstadisticasCacheDTO> estadisticasPedidos() {
+        return ResponseEntity.ok(pedidosCache.obtenerEstadisticas());
+    }
+
+    @DeleteMapping("/pedidos")
+    @Operation(summary = "Invalidar la caché de pedidos", description = "Elimina todas las entradas de la caché de pedidos")
+    @ApiResponse(responseCode = "204", description = "Caché invalidada")
+    public ResponseEntity<Void> invalidarPedidos() {
+        pedidosCache.invalidarTodo();
+        return ResponseEntity.noContent().build();
+    }
+
+    @DeleteMapping("/pedidos/{pedidoId}")
+    @Operation(summary = "Invalidar un pedido en caché", description = "Elimina un pedido específico de la caché")
+    @ApiResponse(responseCode = "204", description = "Pedido invalidado")
+    public ResponseEntity<Void> invalidarPedido(@PathVariable Long pedidoId) {
+        pedidosCache.invalidar(pedidoId);
+        return ResponseEntity.noContent().build();
+    }
+
+    @GetMapping("/proveedores")
+    @Operation(summary = "Estadísticas de la caché de proveedores", description = "Obtiene aciertos y fallos del conjunto "
+            + "de IDs de proveedores y de la caché de datos de proveedores")
+    @ApiResponse(responseCode = "200", description = "Estadísticas obtenidas correctamente")
+    public ResponseEntity<List<EstadisticasCacheDTO>> estadisticasProveedores() {
+        return ResponseEntity.ok(proveedoresCache.obtenerEstadisticas());
+    }
+
+    @DeleteMapping("/proveedores")
+    @Operation(summary = "Invalidar la caché de proveedores", description = "Elimina los datos en caché y recarga los IDs de proveedores")
+    @ApiResponse(responseCode = "204", description = "Caché invalidada")
+    public ResponseEntity<Void> invalidarProveedores() {
+        proveedoresCache.invalidarTodo();
+        return ResponseEntity.noContent().build();
+    }
+
+    @GetMapping("/hibernate")
+    @Operation(summary = "Estadísticas de la caché de segundo nivel", description = "Obtiene aciertos y fallos de cada "
+            + "región de la caché de segundo nivel de Hibernate")
+    @ApiResponse(responseCode = "200", description = "Estadísticas obtenidas correctamente")
+    public ResponseEntity<List<EstadisticasCacheDTO>> estadisticasHibernate() {
+        return ResponseEntity.ok(cacheSegundoNivelService.obtenerEstadisticas());
+    }
+
+    @DeleteMapping("/hibernate")
+    @Operation(summary = "Invalidar la caché de segundo nivel", description = "Elimina las entidades y colecciones "
+            + "guardadas en la caché de segundo nivel de Hibernate")
+    @ApiResponse(responseCode = "204", description = "Caché invalidada")
+    public ResponseEntity<Void> invalidarHibernate() {
+        cacheSegundoNivelService.invalidarTodo();
+        return ResponseEntity.noContent().build();
+    }
+
+    @GetMapping("/pedidos-facturados")
+    @Operation(summary = "Estadísticas del filtro de pedidos facturados", description = "Obtiene cuántos pedidos "
+            + "se descartaron como no facturados sin consultar la base y cuántos requirieron consulta")
+    @ApiResponse(responseCode = "200", description = "Estadísticas obtenidas correctamente")
+    public ResponseEntity<EstadisticasCacheDTO> estadisticasPedidosFacturados() {
+        return ResponseEntity.ok(pedidosFacturados.obtenerEstadisticas());
+    }
+
+    @DeleteMapping("/pedidos-facturados")
+    @Operation(summary = "Reconstruir el filtro de pedidos facturados", description = "Vuelve a cargar el filtro "
+            + "con los pedidos facturados en la base")
+    @ApiResponse(responseCode = "204", description = "Filtro reconstruido")
+    public ResponseEntity<Void> reconstruirPedidosFacturados() {
+        pedidosFacturados.reconstruir();
+        return ResponseEntity.noContent().build();
+    }
+}
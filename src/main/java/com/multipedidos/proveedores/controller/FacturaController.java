@@ -1,17 +1,37 @@
 package com.multipedidos.proveedores.controller;
 
+import com.multipedidos.proveedores.dto.CambioEstadoFacturaDTO;
+import com.multipedidos.proveedores.dto.CambioEstadoLoteDTO;
 import com.multipedidos.proveedores.dto.FacturaDTO;
 import com.multipedidos.proveedores.dto.FacturaInputDTO;
+import com.multipedidos.proveedores.dto.FiltroFacturasDTO;
+import com.multipedidos.proveedores.dto.LoteFacturasDTO;
+import com.multipedidos.proveedores.dto.PaginaDTO;
+import com.multipedidos.proveedores.dto.ResultadoCambioEstadoDTO;
+import com.multipedidos.proveedores.dto.TrabajoFacturaDTO;
+import com.multipedidos.proveedores.model.Factura;
+import com.multipedidos.proveedores.service.FacturaEstadoService;
+import com.multipedidos.proveedores.service.FacturaLoteService;
 import com.multipedidos.proveedores.service.FacturaService;
+import com.multipedidos.proveedores.service.ResumenProveedorService;
+import com.multipedidos.proveedores.service.TrabajoFacturaService;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.math.BigDecimal;
+import java.net.URI;
+import java.time.LocalDate;
 import java.util.List;
 
 /**
@@ -23,9 +43,22 @@ import java.util.List;
 public class FacturaController {
 
     private final FacturaService facturaService;
+    private final FacturaLoteService facturaLoteService;
+    private final TrabajoFacturaService trabajoFacturaService;
+    private final FacturaEstadoService facturaEstadoService;
+    private final ResumenProveedorService resumenProveedorService;
+    private final RespuestasCondicionales respuestasCondicionales;
 
-    public FacturaController(FacturaService facturaService) {
+    public FacturaController(FacturaService facturaService, FacturaLoteService facturaLoteService,
+                             TrabajoFacturaService trabajoFacturaService, FacturaEstadoService facturaEstadoService,
+                             ResumenProveedorService resumenProveedorService,
+                             RespuestasCondicionales respuestasCondicionales) {
         this.facturaService = facturaService;
+        this.facturaLoteService = facturaLoteService;
+        this.trabajoFacturaService = trabajoFacturaService;
+        this.facturaEstadoService = facturaEstadoService;
+        this.resumenProveedorService = resumenProveedorService;
+        this.respuestasCondicionales = respuestasCondicionales;
     }
 
     @PostMapping
@@ -39,34 +72,176 @@ public class FacturaController {
         return ResponseEntity.status(HttpStatus.CREATED).body(factura);
     }
 
+    @PostMapping(params = "async=true")
+    @Operation(summary = "Registrar una factura en segundo plano", description = "Encola la factura y responde de inmediato "
+            + "con el trabajo creado. El estado se consulta en GET /api/facturas/jobs/{id}")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "202", description = "Factura encolada"),
+            @ApiResponse(responseCode = "400", description = "Datos inválidos")
+    })
+    public ResponseEntity<TrabajoFacturaDTO> encolarFactura(@Valid @RequestBody FacturaInputDTO input) {
+        TrabajoFacturaDTO trabajo = trabajoFacturaService.encolar(input);
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/facturas/jobs/" + trabajo.getId()))
+                .body(trabajo);
+    }
+
+    @GetMapping("/jobs/{id}")
+    @Operation(summary = "Consultar una factura enviada en segundo plano", description = "Obtiene el estado del trabajo "
+            + "y, una vez completado, el ID de la factura creada")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Trabajo encontrado"),
+            @ApiResponse(responseCode = "404", description = "Trabajo no encontrado")
+    })
+    public ResponseEntity<TrabajoFacturaDTO> obtenerTrabajo(@PathVariable Long id) {
+        TrabajoFacturaDTO trabajo = trabajoFacturaService.obtenerTrabajo(id);
+        return ResponseEntity.ok(trabajo);
+    }
+
+    @PostMapping("/lote")
+    @Operation(summary = "Registrar facturas por lote", description = "Crea varias facturas en una sola solicitud. "
+            + "Cada elemento del resultado indica el ID de la factura creada o el motivo por el que no se registró")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Lote procesado"),
+            @ApiResponse(responseCode = "400", description = "Lote vacío o demasiado grande")
+    })
+    public ResponseEntity<LoteFacturasDTO> crearFacturasLote(@RequestBody List<FacturaInputDTO> entradas) {
+        LoteFacturasDTO resultado = facturaLoteService.crearFacturas(entradas);
+        return ResponseEntity.ok(resultado);
+    }
+
+    @PatchMapping("/{id}/estado")
+    @Operation(summary = "Cambiar el estado de una factura", description = "Marca una factura pendiente como pagada o "
+            + "cancelada. Si se envía la versión leída y la factura cambió desde entonces, se responde 409")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Estado actualizado"),
+            @ApiResponse(responseCode = "400", description = "Cambio de estado no permitido"),
+            @ApiResponse(responseCode = "404", description = "Factura no encontrada"),
+            @ApiResponse(responseCode = "409", description = "La factura fue modificada por otra operación")
+    })
+    public ResponseEntity<FacturaDTO> cambiarEstado(@PathVariable Long id, @Valid @RequestBody CambioEstadoFacturaDTO cambio) {
+        FacturaDTO factura = facturaEstadoService.cambiarEstado(id, cambio);
+        return ResponseEntity.ok(factura);
+    }
+
+    @PostMapping("/estado")
+    @Operation(summary = "Cambiar el estado de varias facturas", description = "Marca como pagadas o canceladas las "
+            + "facturas pendientes indicadas, por ejemplo a partir de una conciliación de pagos. Informa cuántas cambiaron "
+            + "y qué IDs no existen o no admiten el cambio")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Cambio procesado"),
+            @ApiResponse(responseCode = "400", description = "Estado inválido o lote demasiado grande")
+    })
+    public ResponseEntity<ResultadoCambioEstadoDTO> cambiarEstados(@Valid @RequestBody CambioEstadoLoteDTO cambio) {
+        ResultadoCambioEstadoDTO resultado = facturaEstadoService.cambiarEstados(cambio);
+        return ResponseEntity.ok(resultado);
+    }
+
     @GetMapping
-    @Operation(summary = "Listar todas las facturas", description = "Obtiene la lista completa de facturas")
-    @ApiResponse(responseCode = "200", description = "Lista de facturas obtenida correctamente")
-    public ResponseEntity<List<FacturaDTO>> listarFacturas() {
-        List<FacturaDTO> facturas = facturaService.listarFacturas();
-        return ResponseEntity.ok(facturas);
+    @Operation(summary = "Listar facturas", description = "Obtiene una página de facturas, de la más reciente a la más antigua. "
+            + "El cursor de la página siguiente se devuelve en el encabezado X-Next-Cursor")
+    @ApiResponse(responseCode = "200", description = "Página de facturas obtenida correctamente")
+    public ResponseEntity<List<FacturaDTO>> listarFacturas(
+            @Parameter(description = "Cursor opaco de la página a obtener") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Cantidad máxima de facturas (1-500)") @RequestParam(required = false) Integer limit,
+            @Parameter(description = "Incluir el detalle de pedidos de cada factura") @RequestParam(defaultValue = "true") boolean detalle) {
+        PaginaDTO<FacturaDTO> facturas = facturaService.listarFacturas(cursor, limit, detalle);
+        return RespuestasPaginadas.ok(facturas);
+    }
+
+    @GetMapping("/buscar")
+    @Operation(summary = "Buscar facturas", description = "Obtiene una página de las facturas que cumplen los filtros "
+            + "indicados, de la más reciente a la más antigua. Los filtros omitidos no se aplican y los rangos incluyen "
+            + "ambos extremos. El cursor de la página siguiente se devuelve en el encabezado X-Next-Cursor y debe "
+            + "enviarse con los mismos filtros")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Página de facturas obtenida correctamente"),
+            @ApiResponse(responseCode = "400", description = "Filtros, cursor o límite inválidos")
+    })
+    public ResponseEntity<List<FacturaDTO>> buscarFacturas(
+            @Parameter(description = "ID del proveedor") @RequestParam(required = false) Long proveedorId,
+            @Parameter(description = "Estado de la factura") @RequestParam(required = false) Factura.EstadoFactura estado,
+            @Parameter(description = "Fecha de factura mínima (yyyy-MM-dd)")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fechaDesde,
+            @Parameter(description = "Fecha de factura máxima (yyyy-MM-dd)")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fechaHasta,
+            @Parameter(description = "Total mínimo") @RequestParam(required = false) BigDecimal totalMinimo,
+            @Parameter(description = "Total máximo") @RequestParam(required = false) BigDecimal totalMaximo,
+            @Parameter(description = "Cursor opaco de la página a obtener") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Cantidad máxima de facturas (1-500)") @RequestParam(required = false) Integer limit,
+            @Parameter(description = "Incluir el detalle de pedidos de cada factura") @RequestParam(defaultValue = "true") boolean detalle) {
+        FiltroFacturasDTO filtro = FiltroFacturasDTO.builder()
+                .proveedorId(proveedorId)
+                .estado(estado)
+                .fechaDesde(fechaDesde)
+                .fechaHasta(fechaHasta)
+                .totalMinimo(totalMinimo)
+                .totalMaximo(totalMaximo)
+                .build();
+        PaginaDTO<FacturaDTO> facturas = facturaService.buscarFacturas(filtro, cursor, limit, detalle);
+        return RespuestasPaginadas.ok(facturas);
+    }
+
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Exportar todas las facturas", description = "Transmite todas las facturas en formato NDJSON "
+            + "(un objeto JSON por línea), enviando los datos a medida que se leen de la base de datos")
+    @ApiResponse(responseCode = "200", description = "Exportación en curso")
+    public ResponseEntity<StreamingResponseBody> exportarFacturas() {
+        StreamingResponseBody cuerpo = facturaService::exportarFacturas;
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(cuerpo);
     }
 
     @GetMapping("/{id}")
-    @Operation(summary = "Obtener factura por ID", description = "Obtiene los detalles de una factura específica y su total")
+    @Operation(summary = "Obtener factura por ID", description = "Obtiene los detalles de una factura específica y su total. "
+            + "Con If-None-Match y el ETag de la respuesta anterior se responde 304 si la factura no cambió")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Factura encontrada"),
+            @ApiResponse(responseCode = "304", description = "La factura no cambió desde el ETag indicado"),
             @ApiResponse(responseCode = "404", description = "Factura no encontrada")
     })
-    public ResponseEntity<FacturaDTO> obtenerFactura(@PathVariable Long id) {
-        FacturaDTO factura = facturaService.obtenerFactura(id);
-        return ResponseEntity.ok(factura);
+    public ResponseEntity<FacturaDTO> obtenerFactura(@PathVariable Long id, WebRequest request) {
+        Long version = facturaService.obtenerVersion(id);
+        String etag = etagFactura(id, version);
+        if (respuestasCondicionales.noModificado(request, etag)) {
+            return respuestasCondicionales.respuestaNoModificada(etag);
+        }
+        FacturaDTO factura = facturaService.obtenerFactura(id, version);
+        return respuestasCondicionales.ok(etagFactura(id, factura.getVersion()), factura);
     }
 
     @GetMapping("/proveedor/{proveedorId}")
-    @Operation(summary = "Obtener facturas por proveedor", description = "Obtiene todas las facturas de un proveedor específico")
+    @Operation(summary = "Obtener facturas por proveedor", description = "Obtiene una página de facturas de un proveedor específico. "
+            + "El cursor de la página siguiente se devuelve en el encabezado X-Next-Cursor. "
+            + "Con If-None-Match y el ETag de la respuesta anterior se responde 304 si las facturas del proveedor no cambiaron")
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "200", description = "Lista de facturas obtenida correctamente"),
+            @ApiResponse(responseCode = "200", description = "Página de facturas obtenida correctamente"),
+            @ApiResponse(responseCode = "304", description = "Las facturas del proveedor no cambiaron desde el ETag indicado"),
             @ApiResponse(responseCode = "404", description = "Proveedor no encontrado")
     })
-    public ResponseEntity<List<FacturaDTO>> obtenerFacturasPorProveedor(@PathVariable Long proveedorId) {
-        List<FacturaDTO> facturas = facturaService.listarFacturasPorProveedor(proveedorId);
-        return ResponseEntity.ok(facturas);
+    public ResponseEntity<List<FacturaDTO>> obtenerFacturasPorProveedor(
+            @PathVariable Long proveedorId,
+            @Parameter(description = "Cursor opaco de la página a obtener") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Cantidad máxima de facturas (1-500)") @RequestParam(required = false) Integer limit,
+            @Parameter(description = "Incluir el detalle de pedidos de cada factura") @RequestParam(defaultValue = "true") boolean detalle,
+            WebRequest request) {
+        // La marca se lee antes que la página: si cambia en el medio, el ETag queda viejo y el
+        // cliente vuelve a recibir la página en la consulta siguiente, nunca al revés
+        String etag = resumenProveedorService.obtenerMarcaFacturas(proveedorId)
+                .map(marca -> RespuestasCondicionales.etagResumido(String.join("|",
+                        String.valueOf(proveedorId), marca, String.valueOf(cursor), String.valueOf(limit),
+                        String.valueOf(detalle))))
+                .orElse(null);
+        if (etag != null && respuestasCondicionales.noModificado(request, etag)) {
+            return respuestasCondicionales.respuestaNoModificada(etag);
+        }
+        PaginaDTO<FacturaDTO> facturas = facturaService.listarFacturasPorProveedor(proveedorId, cursor, limit, detalle);
+        return respuestasCondicionales.conCache(RespuestasPaginadas.ok(facturas), etag);
+    }
+
+    private static String etagFactura(Long id, Long version) {
+        return RespuestasCondicionales.etag("f" + id, version);
     }
 }
 
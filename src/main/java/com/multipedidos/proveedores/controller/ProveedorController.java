@@ -1,9 +1,13 @@
 package com.multipedidos.proveedores.controller;
 
+import com.multipedidos.proveedores.dto.PaginaDTO;
 import com.multipedidos.proveedores.dto.ProveedorDTO;
 import com.multipedidos.proveedores.dto.ProveedorInputDTO;
+import com.multipedidos.proveedores.dto.ResumenProveedorDTO;
 import com.multipedidos.proveedores.service.ProveedorService;
+import com.multipedidos.proveedores.service.ResumenProveedorService;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -12,6 +16,7 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 
@@ -25,6 +30,8 @@ import java.util.List;
 public class ProveedorController {
 
     private final ProveedorService proveedorService;
+    private final ResumenProveedorService resumenProveedorService;
+    private final RespuestasCondicionales respuestasCondicionales;
 
     @PostMapping
     @Operation(summary = "Registrar un proveedor", description = "Registra un nuevo proveedor en el sistema")
@@ -38,22 +45,54 @@ public class ProveedorController {
     }
 
     @GetMapping
-    @Operation(summary = "Listar proveedores", description = "Obtiene la lista completa de proveedores")
-    @ApiResponse(responseCode = "200", description = "Lista de proveedores obtenida correctamente")
-    public ResponseEntity<List<ProveedorDTO>> listarProveedores() {
-        List<ProveedorDTO> proveedores = proveedorService.listarProveedores();
-        return ResponseEntity.ok(proveedores);
+    @Operation(summary = "Listar proveedores", description = "Obtiene una página de proveedores ordenada por ID. "
+            + "El cursor de la página siguiente se devuelve en el encabezado X-Next-Cursor")
+    @ApiResponse(responseCode = "200", description = "Página de proveedores obtenida correctamente")
+    public ResponseEntity<List<ProveedorDTO>> listarProveedores(
+            @Parameter(description = "Cursor opaco de la página a obtener") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Cantidad máxima de proveedores (1-500)") @RequestParam(required = false) Integer limit) {
+        PaginaDTO<ProveedorDTO> proveedores = proveedorService.listarProveedores(cursor, limit);
+        return RespuestasPaginadas.ok(proveedores);
+    }
+
+    @GetMapping("/resumen")
+    @Operation(summary = "Listar resúmenes de facturación", description = "Obtiene una página con la cantidad de facturas, "
+            + "el total facturado y los montos pendiente y pagado de cada proveedor, ordenada por ID de proveedor")
+    @ApiResponse(responseCode = "200", description = "Página de resúmenes obtenida correctamente")
+    public ResponseEntity<List<ResumenProveedorDTO>> listarResumenes(
+            @Parameter(description = "Cursor opaco de la página a obtener") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Cantidad máxima de resúmenes (1-500)") @RequestParam(required = false) Integer limit) {
+        PaginaDTO<ResumenProveedorDTO> resumenes = resumenProveedorService.listarResumenes(cursor, limit);
+        return RespuestasPaginadas.ok(resumenes);
     }
 
     @GetMapping("/{id}")
-    @Operation(summary = "Obtener un proveedor por ID", description = "Obtiene los detalles de un proveedor específico")
+    @Operation(summary = "Obtener un proveedor por ID", description = "Obtiene los detalles de un proveedor específico. "
+            + "Con If-None-Match y el ETag de la respuesta anterior se responde 304 si el proveedor no cambió")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Proveedor encontrado"),
+            @ApiResponse(responseCode = "304", description = "El proveedor no cambió desde el ETag indicado"),
             @ApiResponse(responseCode = "404", description = "Proveedor no encontrado")
     })
-    public ResponseEntity<ProveedorDTO> obtenerProveedor(@PathVariable Long id) {
+    public ResponseEntity<ProveedorDTO> obtenerProveedor(@PathVariable Long id, WebRequest request) {
+        // El proveedor suele resolverse desde la caché local: el 304 ahorra la serialización y el envío
         ProveedorDTO proveedor = proveedorService.obtenerProveedor(id);
-        return ResponseEntity.ok(proveedor);
+        String etag = RespuestasCondicionales.etag("p" + id, proveedor.getVersion());
+        if (respuestasCondicionales.noModificado(request, etag)) {
+            return respuestasCondicionales.respuestaNoModificada(etag);
+        }
+        return respuestasCondicionales.ok(etag, proveedor);
     }
-}
 
+    @GetMapping("/{id}/resumen")
+    @Operation(summary = "Obtener el resumen de facturación de un proveedor", description = "Obtiene la cantidad de facturas, "
+            + "el total facturado y los montos pendiente y pagado del proveedor")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Resumen obtenido correctamente"),
+            @ApiResponse(responseCode = "404", description = "Proveedor no encontrado")
+    })
+    public ResponseEntity<ResumenProveedorDTO> obtenerResumen(@PathVariable Long id) {
+        ResumenProveedorDTO resumen = resumenProveedorService.obtenerResumen(id);
+        return ResponseEntity.ok(resumen);
+    }
+}
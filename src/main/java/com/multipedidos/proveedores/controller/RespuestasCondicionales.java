@@ -0,0 +1,98 @@
+package com.multipedidos.proveedores.controller;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.context.request.WebRequest;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Construye las respuestas de lectura con ETag fuerte y {@code Cache-Control}.
+ *
+ * El ETag se calcula a partir de la versión del recurso antes de cargarlo; si coincide con
+ * {@code If-None-Match} se responde 304 sin cuerpo y sin leer el resto del recurso. Con
+ * {@code max-age-segundos} en 0 los clientes deben revalidar en cada consulta.
+ */
+@Component
+class RespuestasCondicionales {
+
+    private final CacheControl cacheControl;
+
+    RespuestasCondicionales(@Value("${facturacion.http-cache.max-age-segundos:0}") long maxAgeSegundos) {
+        this.cacheControl = maxAgeSegundos > 0
+                ? CacheControl.maxAge(maxAgeSegundos, TimeUnit.SECONDS).cachePrivate().mustRevalidate()
+                : CacheControl.noCache().cachePrivate();
+    }
+
+    static String etag(Object... partes) {
+        StringBuilder valor = new StringBuilder("\"");
+        for (int i = 0; i < partes.length; i++) {
+            valor.append(i == 0 ? "" : "-").append(partes[i]);
+        }
+        return valor.append('"').toString();
+    }
+
+    /**
+     * ETag de longitud fija para valores largos, como la combinación de parámetros de un listado.
+     */
+    static String etagResumido(String valor) {
+        return "\"" + DigestUtils.md5DigestAsHex(valor.getBytes(StandardCharsets.UTF_8)) + "\"";
+    }
+
+    /**
+     * Indica si alguno de los ETag de {@code If-None-Match} coincide con el indicado. Para este
+     * encabezado la comparación es débil: se ignora el prefijo {@code W/}.
+     */
+    boolean noModificado(WebRequest request, String etag) {
+        String[] encabezados = request.getHeaderValues(HttpHeaders.IF_NONE_MATCH);
+        if (encabezados == null) {
+            return false;
+        }
+        for (String encabezado : encabezados) {
+            for (String candidato : encabezado.split(",")) {
+                String valor = candidato.trim();
+                if (valor.startsWith("W/")) {
+                    valor = valor.substring(2);
+                }
+                if (valor.equals("*") || valor.equals(etag)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    <T> ResponseEntity<T> respuestaNoModificada(String etag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                .eTag(etag)
+                .cacheControl(cacheControl)
+                .build();
+    }
+
+    <T> ResponseEntity<T> ok(String etag, T cuerpo) {
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(cacheControl)
+                .body(cuerpo);
+    }
+
+    /**
+     * Agrega el ETag y {@code Cache-Control} a una respuesta ya construida; sin ETag solo agrega
+     * {@code Cache-Control}.
+     */
+    <T> ResponseEntity<T> conCache(ResponseEntity<T> respuesta, String etag) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.status(respuesta.getStatusCode())
+                .headers(respuesta.getHeaders())
+                .cacheControl(cacheControl);
+        if (etag != null) {
+            builder.eTag(etag);
+        }
+        return builder.body(respuesta.getBody());
+    }
+}
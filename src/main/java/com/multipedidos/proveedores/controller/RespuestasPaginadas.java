@@ -0,0 +1,34 @@
+package com.multipedidos.proveedores.controller;
+
+import com.multipedidos.proveedores.dto.PaginaDTO;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.util.List;
+
+/**
+ * Construye las respuestas de los listados paginados por cursor.
+ *
+ * El cuerpo sigue siendo el arreglo de elementos; el cursor de la página siguiente viaja en el
+ * encabezado {@code X-Next-Cursor} y como enlace {@code rel="next"} en el encabezado {@code Link}.
+ */
+final class RespuestasPaginadas {
+
+    static final String ENCABEZADO_CURSOR = "X-Next-Cursor";
+
+    private RespuestasPaginadas() {
+    }
+
+    static <T> ResponseEntity<List<T>> ok(PaginaDTO<T> pagina) {
+        ResponseEntity.BodyBuilder respuesta = ResponseEntity.ok();
+        if (pagina.getSiguiente() != null) {
+            String enlace = ServletUriComponentsBuilder.fromCurrentRequest()
+                    .replaceQueryParam("cursor", pagina.getSiguiente())
+                    .toUriString();
+            respuesta.header(ENCABEZADO_CURSOR, pagina.getSiguiente())
+                    .header(HttpHeaders.LINK, "<" + enlace + ">; rel=\"next\"");
+        }
+        return respuesta.body(pagina.getItems());
+    }
+}
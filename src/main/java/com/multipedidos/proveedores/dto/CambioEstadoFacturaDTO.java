@@ -0,0 +1,24 @@
+package com.multipedidos.proveedores.dto;
+
+import com.multipedidos.proveedores.model.Factura;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO de entrada para cambiar el estado de una factura. Si se indica la versión leída y no
+ * coincide con la actual, el cambio se rechaza.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CambioEstadoFacturaDTO {
+
+    @NotNull(message = "El estado es obligatorio")
+    private Factura.EstadoFactura estado;
+
+    private Long version;
+}
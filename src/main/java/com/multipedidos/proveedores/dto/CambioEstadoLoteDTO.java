@@ -0,0 +1,28 @@
+package com.multipedidos.proveedores.dto;
+
+import com.multipedidos.proveedores.model.Factura;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * DTO de entrada para cambiar el estado de varias facturas, por ejemplo las pagadas
+ * según una conciliación bancaria.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CambioEstadoLoteDTO {
+
+    @NotNull(message = "El estado es obligatorio")
+    private Factura.EstadoFactura estado;
+
+    @NotEmpty(message = "Debe indicar al menos una factura")
+    private List<Long> facturaIds;
+}
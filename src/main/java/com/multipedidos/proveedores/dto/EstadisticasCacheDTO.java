@@ -0,0 +1,22 @@
+package com.multipedidos.proveedores.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO para exponer las estadísticas de una caché local.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class EstadisticasCacheDTO {
+    private String nombre;
+    private long entradas;
+    private long aciertos;
+    private long fallos;
+    private long desalojos;
+    private double tasaAciertos;
+}
@@ -1,5 +1,7 @@
 package com.multipedidos.proveedores.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.multipedidos.proveedores.model.Factura;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -18,7 +20,10 @@ import java.util.List;
 public class FacturaDTO {
     private Long id;
     private Long proveedorId;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
     private List<PedidoReferenciaDTO> pedidos;
     private BigDecimal totalFactura;
+    private Factura.EstadoFactura estado;
+    private Long version;
 }
 
@@ -0,0 +1,33 @@
+package com.multipedidos.proveedores.dto;
+
+import com.multipedidos.proveedores.model.Factura;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Filtros de la búsqueda de facturas. Los campos nulos no filtran; los rangos de fecha y de
+ * total incluyen ambos extremos.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FiltroFacturasDTO {
+
+    private Long proveedorId;
+
+    private Factura.EstadoFactura estado;
+
+    private LocalDate fechaDesde;
+
+    private LocalDate fechaHasta;
+
+    private BigDecimal totalMinimo;
+
+    private BigDecimal totalMaximo;
+}
@@ -0,0 +1,22 @@
+package com.multipedidos.proveedores.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * DTO de salida para la creación de facturas por lote, con un resultado por elemento
+ * en el mismo orden de la solicitud.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LoteFacturasDTO {
+    private int creadas;
+    private int fallidas;
+    private List<ResultadoFacturaLoteDTO> resultados;
+}
@@ -0,0 +1,19 @@
+package com.multipedidos.proveedores.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Página de resultados de un listado paginado por cursor (keyset).
+ * {@code siguiente} es el cursor opaco de la página siguiente, o {@code null} si es la última.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaginaDTO<T> {
+    private List<T> items;
+    private String siguiente;
+}
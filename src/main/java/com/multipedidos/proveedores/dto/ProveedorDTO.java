@@ -16,5 +16,6 @@ public class ProveedorDTO {
     private Long id;
     private String nombre;
     private String correo;
+    private Long version;
 }
 
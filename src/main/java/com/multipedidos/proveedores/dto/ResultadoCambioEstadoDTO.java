@@ -0,0 +1,23 @@
+package com.multipedidos.proveedores.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * DTO de salida del cambio de estado por lote: cuántas facturas cambiaron, cuántas ya estaban
+ * en el estado pedido y qué IDs no existen o no admiten el cambio.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResultadoCambioEstadoDTO {
+    private int actualizadas;
+    private int sinCambios;
+    private List<Long> noEncontradas;
+    private List<Long> rechazadas;
+}
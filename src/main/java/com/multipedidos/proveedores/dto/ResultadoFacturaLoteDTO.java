@@ -0,0 +1,21 @@
+package com.multipedidos.proveedores.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO con el resultado de una factura dentro de un lote: el ID creado o el motivo del error.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ResultadoFacturaLoteDTO {
+    private int indice;
+    private Long facturaId;
+    private String error;
+}
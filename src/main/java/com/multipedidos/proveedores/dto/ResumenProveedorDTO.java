@@ -0,0 +1,25 @@
+package com.multipedidos.proveedores.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * DTO con los acumulados de facturación de un proveedor.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResumenProveedorDTO {
+    private Long proveedorId;
+    private long cantidadFacturas;
+    private BigDecimal totalFacturado;
+    private BigDecimal montoPendiente;
+    private BigDecimal montoPagado;
+    private LocalDateTime fechaActualizacion;
+}
@@ -0,0 +1,27 @@
+package com.multipedidos.proveedores.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * DTO para consultar el estado de una factura enviada en modo asíncrono.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class TrabajoFacturaDTO {
+    private Long id;
+    private String estado;
+    private int intentos;
+    private Long facturaId;
+    private String error;
+    private LocalDateTime fechaCreacion;
+    private LocalDateTime fechaActualizacion;
+}
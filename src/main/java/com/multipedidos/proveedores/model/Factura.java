@@ -6,6 +6,9 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -17,6 +20,8 @@ import java.util.List;
  */
 @Entity
 @Table(name = "facturas")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "facturas")
 @Data
 @Builder
 @NoArgsConstructor
@@ -24,22 +29,27 @@ import java.util.List;
 public class Factura {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "facturas_seq")
+    @SequenceGenerator(name = "facturas_seq", sequenceName = "facturas_seq", allocationSize = 50)
     private Long id;
 
     @NotNull(message = "El proveedor es obligatorio")
     @Column(name = "proveedor_id", nullable = false)
     private Long proveedorId;
 
-    @OneToMany(cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.EAGER)
-    @JoinColumn(name = "factura_id")
+    @OneToMany(mappedBy = "factura", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.LAZY)
+    @BatchSize(size = 100)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "facturas-pedidos")
     @Builder.Default
     private List<PedidoReferencia> pedidos = new ArrayList<>();
 
     @Column(name = "total_factura", nullable = false, precision = 10, scale = 2)
     private BigDecimal totalFactura;
 
-    @Column(name = "fecha_factura", updatable = false)
+    /**
+     * Clave de partición de facturas y pedidos_referencias: una partición por mes.
+     */
+    @Column(name = "fecha_factura", nullable = false, updatable = false)
     private LocalDateTime fechaFactura;
 
     @Enumerated(EnumType.STRING)
@@ -47,6 +57,22 @@ public class Factura {
     @Builder.Default
     private EstadoFactura estado = EstadoFactura.PENDIENTE;
 
+    /**
+     * Versión para el bloqueo optimista; cada cambio de estado la incrementa.
+     */
+    @Version
+    @Column(nullable = false)
+    private Long version;
+
+    /**
+     * Agrega una referencia de pedido manteniendo ambos lados de la relación, de modo que
+     * la columna factura_id se escriba en el propio INSERT de la referencia.
+     */
+    public void agregarPedido(PedidoReferencia pedido) {
+        pedido.setFactura(this);
+        pedidos.add(pedido);
+    }
+
     @PrePersist
     protected void onCreate() {
         fechaFactura = LocalDateTime.now();
@@ -58,7 +84,14 @@ public class Factura {
     public enum EstadoFactura {
         PENDIENTE,
         PAGADA,
-        CANCELADA
+        CANCELADA;
+
+        /**
+         * Solo una factura pendiente puede pagarse o cancelarse; pagada y cancelada son finales.
+         */
+        public boolean permiteCambioA(EstadoFactura nuevo) {
+            return this == PENDIENTE && nuevo != PENDIENTE;
+        }
     }
 }
 
@@ -0,0 +1,31 @@
+package com.multipedidos.proveedores.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Registro de un pedido facturado. Su clave primaria impide facturar un pedido dos veces,
+ * algo que el índice de {@code pedidos_referencias} no puede garantizar porque está particionado
+ * por fecha. No se archiva junto con las facturas antiguas.
+ */
+@Entity
+@Table(name = "pedidos_facturados")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PedidoFacturado {
+
+    @Id
+    @Column(name = "pedido_id")
+    private Long pedidoId;
+
+    @Column(name = "factura_id", nullable = false)
+    private Long facturaId;
+}
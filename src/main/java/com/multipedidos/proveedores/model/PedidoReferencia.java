@@ -5,15 +5,23 @@ import jakarta.validation.constraints.NotNull;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 
 /**
  * Entidad que almacena la referencia a un pedido del microservicio A.
+ * Cada pedido puede facturarse una sola vez; lo garantiza {@link PedidoFacturado}.
  */
 @Entity
 @Table(name = "pedidos_referencias")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_ONLY, region = "pedidos-referencias")
 @Data
 @Builder
 @NoArgsConstructor
@@ -21,14 +29,32 @@ import java.math.BigDecimal;
 public class PedidoReferencia {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "pedidos_referencias_seq")
+    @SequenceGenerator(name = "pedidos_referencias_seq", sequenceName = "pedidos_referencias_seq", allocationSize = 50)
     private Long id;
 
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "factura_id", nullable = false)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private Factura factura;
+
     @NotNull(message = "El ID del pedido es obligatorio")
     @Column(name = "pedido_id", nullable = false)
     private Long pedidoId;
 
     @Column(nullable = false, precision = 10, scale = 2)
     private BigDecimal total;
+
+    /**
+     * Fecha de la factura, que ubica la referencia en la partición del mismo mes.
+     */
+    @Column(name = "fecha_factura", nullable = false, updatable = false)
+    private LocalDateTime fechaFactura;
+
+    @PrePersist
+    protected void onCreate() {
+        fechaFactura = factura.getFechaFactura();
+    }
 }
 
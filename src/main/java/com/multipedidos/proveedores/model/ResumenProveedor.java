@@ -0,0 +1,42 @@
+package com.multipedidos.proveedores.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Acumulados de facturación por proveedor, mantenidos en cada alta o cambio de estado
+ * de una factura para no recorrer el historial al consultarlos.
+ */
+@Entity
+@Table(name = "resumen_proveedores")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResumenProveedor {
+
+    @Id
+    @Column(name = "proveedor_id")
+    private Long proveedorId;
+
+    @Column(name = "cantidad_facturas", nullable = false)
+    private long cantidadFacturas;
+
+    @Column(name = "total_facturado", nullable = false, precision = 14, scale = 2)
+    private BigDecimal totalFacturado;
+
+    @Column(name = "monto_pendiente", nullable = false, precision = 14, scale = 2)
+    private BigDecimal montoPendiente;
+
+    @Column(name = "monto_pagado", nullable = false, precision = 14, scale = 2)
+    private BigDecimal montoPagado;
+
+    @Column(name = "fecha_actualizacion", nullable = false)
+    private LocalDateTime fechaActualizacion;
+}
@@ -0,0 +1,72 @@
+package com.multipedidos.proveedores.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entidad de la cola persistente de facturas enviadas en modo asíncrono.
+ * Guarda la solicitud original en JSON hasta que un worker la procesa.
+ */
+@Entity
+@Table(name = "trabajos_facturas",
+        indexes = {
+                @Index(name = "idx_trabajos_facturas_estado", columnList = "estado, id"),
+                @Index(name = "idx_trabajos_facturas_estado_actualizacion", columnList = "estado, fecha_actualizacion")
+        })
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TrabajoFactura {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "trabajos_facturas_seq")
+    @SequenceGenerator(name = "trabajos_facturas_seq", sequenceName = "trabajos_facturas_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(nullable = false, columnDefinition = "text")
+    private String entrada;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    @Builder.Default
+    private EstadoTrabajo estado = EstadoTrabajo.PENDIENTE;
+
+    @Column(nullable = false)
+    private int intentos;
+
+    @Column(name = "factura_id")
+    private Long facturaId;
+
+    @Column(length = 1000)
+    private String error;
+
+    @Column(name = "fecha_creacion", nullable = false, updatable = false)
+    private LocalDateTime fechaCreacion;
+
+    @Column(name = "fecha_actualizacion", nullable = false)
+    private LocalDateTime fechaActualizacion;
+
+    @PrePersist
+    protected void onCreate() {
+        fechaCreacion = LocalDateTime.now();
+        fechaActualizacion = fechaCreacion;
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        fechaActualizacion = LocalDateTime.now();
+    }
+
+    public enum EstadoTrabajo {
+        PENDIENTE,
+        EN_PROCESO,
+        COMPLETADO,
+        FALLIDO
+    }
+}
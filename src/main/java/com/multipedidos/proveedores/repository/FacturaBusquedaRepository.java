@@ -0,0 +1,22 @@
+package com.multipedidos.proveedores.repository;
+
+import com.multipedidos.proveedores.dto.FiltroFacturasDTO;
+import com.multipedidos.proveedores.model.Factura;
+import com.multipedidos.proveedores.util.CursorPaginacion;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Búsqueda de facturas con filtros opcionales, implementada con consultas Criteria.
+ */
+public interface FacturaBusquedaRepository {
+
+    /**
+     * Página de facturas que cumplen el filtro, de la más reciente a la más antigua y no anteriores
+     * a {@code inicio}. Con {@code desde} devuelve las posteriores (más antiguas) a esa clave del
+     * cursor.
+     */
+    List<Factura> buscar(FiltroFacturasDTO filtro, LocalDateTime inicio, CursorPaginacion.ClaveFecha desde,
+                         int limite);
+}
@@ -0,0 +1,77 @@
+package com.multipedidos.proveedores.repository;
+
+import com.multipedidos.proveedores.dto.FiltroFacturasDTO;
+import com.multipedidos.proveedores.model.Factura;
+import com.multipedidos.proveedores.util.CursorPaginacion;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Arma la consulta solo con las condiciones de los filtros indicados, de modo que cada
+ * combinación use el índice que empieza por sus columnas de igualdad (proveedor, estado) y
+ * siga por {@code (fecha_factura desc, id desc)}: el rango de fechas y el cursor se resuelven
+ * en el índice y el orden no requiere ordenar. Los rangos de fecha además descartan las
+ * particiones mensuales fuera del rango.
+ */
+class FacturaBusquedaRepositoryImpl implements FacturaBusquedaRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<Factura> buscar(FiltroFacturasDTO filtro, LocalDateTime inicio, CursorPaginacion.ClaveFecha desde,
+                                int limite) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Factura> consulta = cb.createQuery(Factura.class);
+        Root<Factura> factura = consulta.from(Factura.class);
+        Path<LocalDateTime> fecha = factura.get("fechaFactura");
+        Path<Long> id = factura.get("id");
+        Path<BigDecimal> total = factura.get("totalFactura");
+
+        List<Predicate> condiciones = new ArrayList<>();
+        if (filtro.getProveedorId() != null) {
+            condiciones.add(cb.equal(factura.get("proveedorId"), filtro.getProveedorId()));
+        }
+        if (filtro.getEstado() != null) {
+            condiciones.add(cb.equal(factura.get("estado"), filtro.getEstado()));
+        }
+        // Sin fecha desde, o con una anterior, la ventana de retención acota las particiones
+        LocalDateTime minimo = filtro.getFechaDesde() == null || filtro.getFechaDesde().atStartOfDay().isBefore(inicio)
+                ? inicio : filtro.getFechaDesde().atStartOfDay();
+        condiciones.add(cb.greaterThanOrEqualTo(fecha, minimo));
+        if (filtro.getFechaHasta() != null) {
+            // Hasta el final del día indicado, sin depender de la precisión de la columna
+            condiciones.add(cb.lessThan(fecha, filtro.getFechaHasta().plusDays(1).atStartOfDay()));
+        }
+        if (filtro.getTotalMinimo() != null) {
+            condiciones.add(cb.greaterThanOrEqualTo(total, filtro.getTotalMinimo()));
+        }
+        if (filtro.getTotalMaximo() != null) {
+            condiciones.add(cb.lessThanOrEqualTo(total, filtro.getTotalMaximo()));
+        }
+        if (desde != null) {
+            // La primera condición es redundante, pero a diferencia del OR se resuelve en el índice
+            condiciones.add(cb.lessThanOrEqualTo(fecha, desde.fecha()));
+            condiciones.add(cb.or(
+                    cb.lessThan(fecha, desde.fecha()),
+                    cb.and(cb.equal(fecha, desde.fecha()), cb.lessThan(id, desde.id()))));
+        }
+
+        consulta.select(factura)
+                .where(condiciones.toArray(Predicate[]::new))
+                .orderBy(cb.desc(fecha), cb.desc(id));
+        return entityManager.createQuery(consulta)
+                .setMaxResults(limite)
+                .getResultList();
+    }
+}
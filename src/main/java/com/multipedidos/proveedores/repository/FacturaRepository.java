@@ -1,25 +1,136 @@
 package com.multipedidos.proveedores.repository;
 
 import com.multipedidos.proveedores.model.Factura;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Repositorio para la entidad Factura.
+ *
+ * Las consultas reciben {@code inicio}, el comienzo de la ventana de retención
+ * ({@code RetencionFacturas}), y acotan {@code fechaFactura} desde ahí para que PostgreSQL
+ * descarte las particiones fuera de la ventana. Las búsquedas por ID también lo necesitan: la
+ * clave primaria incluye la fecha y sin ella se revisa el índice de cada partición.
  */
 @Repository
-public interface FacturaRepository extends JpaRepository<Factura, Long> {
+public interface FacturaRepository extends JpaRepository<Factura, Long>, FacturaBusquedaRepository {
     
     /**
-     * Busca todas las facturas de un proveedor específico.
+     * Busca una factura por ID en la base, sin pasar por la caché de segundo nivel.
      */
-    List<Factura> findByProveedorId(Long proveedorId);
-    
+    @Query("select f from Factura f where f.id = :id and f.fechaFactura >= :inicio")
+    Optional<Factura> buscarPorId(@Param("id") Long id, @Param("inicio") LocalDateTime inicio);
+
     /**
-     * Busca facturas por estado.
+     * Versión actual de una factura. Como consulta escalar no pasa por la caché de segundo nivel.
      */
-    List<Factura> findByEstado(Factura.EstadoFactura estado);
-}
+    @Query("select f.version from Factura f where f.id = :id and f.fechaFactura >= :inicio")
+    Optional<Long> buscarVersion(@Param("id") Long id, @Param("inicio") LocalDateTime inicio);
+
+    /**
+     * Busca facturas por estado, de la más reciente a la más antigua.
+     */
+    @Query("select f from Factura f where f.estado = :estado and f.fechaFactura >= :inicio "
+            + "order by f.fechaFactura desc, f.id desc")
+    List<Factura> buscarPorEstado(@Param("estado") Factura.EstadoFactura estado,
+                                  @Param("inicio") LocalDateTime inicio);
+
+    /**
+     * Recorre todas las facturas ordenadas por ID leyendo del cursor JDBC en bloques,
+     * sin materializar el resultado completo. Debe consumirse dentro de una transacción
+     * y cerrarse al terminar.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_MODE, value = "IGNORE")
+    })
+    @Query("select f from Factura f order by f.id")
+    Stream<Factura> recorrerTodas();
 
+    /**
+     * Primera página de facturas, de la más reciente a la más antigua.
+     */
+    @Query("select f from Factura f where f.fechaFactura >= :inicio order by f.fechaFactura desc, f.id desc")
+    List<Factura> buscarPagina(@Param("inicio") LocalDateTime inicio, Pageable pagina);
+
+    /**
+     * Página de facturas posteriores (más antiguas) a la clave {@code (fecha, id)} del cursor.
+     */
+    @Query("select f from Factura f "
+            + "where f.fechaFactura >= :inicio "
+            + "and (f.fechaFactura < :fecha or (f.fechaFactura = :fecha and f.id < :id)) "
+            + "order by f.fechaFactura desc, f.id desc")
+    List<Factura> buscarPaginaDesde(@Param("inicio") LocalDateTime inicio,
+                                    @Param("fecha") LocalDateTime fecha,
+                                    @Param("id") Long id,
+                                    Pageable pagina);
+
+    /**
+     * Primera página de facturas de un proveedor, de la más reciente a la más antigua.
+     */
+    @Query("select f from Factura f where f.proveedorId = :proveedorId and f.fechaFactura >= :inicio "
+            + "order by f.fechaFactura desc, f.id desc")
+    List<Factura> buscarPaginaPorProveedor(@Param("proveedorId") Long proveedorId,
+                                           @Param("inicio") LocalDateTime inicio,
+                                           Pageable pagina);
+
+    /**
+     * Página de facturas de un proveedor posteriores a la clave {@code (fecha, id)} del cursor.
+     */
+    @Query("select f from Factura f "
+            + "where f.proveedorId = :proveedorId and f.fechaFactura >= :inicio "
+            + "and (f.fechaFactura < :fecha or (f.fechaFactura = :fecha and f.id < :id)) "
+            + "order by f.fechaFactura desc, f.id desc")
+    List<Factura> buscarPaginaPorProveedorDesde(@Param("proveedorId") Long proveedorId,
+                                                @Param("inicio") LocalDateTime inicio,
+                                                @Param("fecha") LocalDateTime fecha,
+                                                @Param("id") Long id,
+                                                Pageable pagina);
+
+    /**
+     * Estado actual de las facturas indicadas, sin cargar las entidades.
+     */
+    @Query("select f.id as id, f.proveedorId as proveedorId, f.totalFactura as totalFactura, f.estado as estado "
+            + "from Factura f where f.id in :ids and f.fechaFactura >= :inicio")
+    List<EstadoActual> buscarEstados(@Param("ids") Collection<Long> ids, @Param("inicio") LocalDateTime inicio);
+
+    /**
+     * Cambia el estado de las facturas indicadas que sigan en el estado anterior, con un único
+     * UPDATE que incrementa la versión. Devuelve la cantidad de filas modificadas.
+     */
+    @Modifying
+    @Query("update Factura f set f.estado = :nuevo, f.version = f.version + 1 "
+            + "where f.id in :ids and f.fechaFactura >= :inicio and f.estado = :anterior")
+    int cambiarEstado(@Param("ids") Collection<Long> ids,
+                      @Param("inicio") LocalDateTime inicio,
+                      @Param("anterior") Factura.EstadoFactura anterior,
+                      @Param("nuevo") Factura.EstadoFactura nuevo);
+
+    /**
+     * Proyección con los datos de una factura necesarios para cambiar su estado.
+     */
+    interface EstadoActual {
+        Long getId();
+
+        Long getProveedorId();
+
+        BigDecimal getTotalFactura();
+
+        Factura.EstadoFactura getEstado();
+    }
+}
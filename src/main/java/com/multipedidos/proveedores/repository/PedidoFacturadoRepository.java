@@ -0,0 +1,35 @@
+package com.multipedidos.proveedores.repository;
+
+import com.multipedidos.proveedores.model.PedidoFacturado;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Repositorio de los pedidos facturados.
+ */
+@Repository
+public interface PedidoFacturadoRepository extends JpaRepository<PedidoFacturado, Long> {
+
+    /**
+     * IDs de pedido, entre los indicados, que ya figuran en alguna factura.
+     */
+    @Query("select p.pedidoId from PedidoFacturado p where p.pedidoId in :pedidoIds")
+    List<Long> buscarFacturados(@Param("pedidoIds") Collection<Long> pedidoIds);
+
+    /**
+     * Recorre todos los IDs de pedido facturados leyendo del cursor JDBC en bloques.
+     * Debe consumirse dentro de una transacción y cerrarse al terminar.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "10000"))
+    @Query("select p.pedidoId from PedidoFacturado p")
+    Stream<Long> recorrerPedidoIds();
+}
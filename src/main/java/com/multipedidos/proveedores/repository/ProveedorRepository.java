@@ -1,9 +1,14 @@
 package com.multipedidos.proveedores.repository;
 
 import com.multipedidos.proveedores.model.Proveedor;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -21,5 +26,22 @@ public interface ProveedorRepository extends JpaRepository<Proveedor, Long> {
      * Verifica si existe un proveedor con el correo dado.
      */
     boolean existsByCorreo(String correo);
+
+    /**
+     * Página de proveedores ordenada por ID, a partir del ID indicado (exclusivo).
+     */
+    List<Proveedor> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pagina);
+
+    /**
+     * IDs que existen entre los indicados, resueltos en una sola consulta.
+     */
+    @Query("select p.id from Proveedor p where p.id in :ids")
+    List<Long> buscarIdsExistentes(@Param("ids") Collection<Long> ids);
+
+    /**
+     * IDs de todos los proveedores, para precargar la caché.
+     */
+    @Query("select p.id from Proveedor p")
+    List<Long> buscarTodosLosIds();
 }
 
@@ -0,0 +1,85 @@
+package com.multipedidos.proveedores.repository;
+
+import com.multipedidos.proveedores.model.ResumenProveedor;
+import org.springframework.data.domain.Pageable;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Repositorio de los acumulados de facturación por proveedor.
+ */
+@Repository
+public interface ResumenProveedorRepository extends JpaRepository<ResumenProveedor, Long> {
+
+    /**
+     * Suma las variaciones al resumen del proveedor con un único UPDATE, sin leer la fila antes,
+     * de modo que facturas concurrentes del mismo proveedor no pierdan actualizaciones.
+     * Devuelve 0 si el proveedor aún no tiene resumen.
+     */
+    @Modifying
+    @Query("update ResumenProveedor r set r.cantidadFacturas = r.cantidadFacturas + :cantidad, "
+            + "r.totalFacturado = r.totalFacturado + :facturado, "
+            + "r.montoPendiente = r.montoPendiente + :pendiente, "
+            + "r.montoPagado = r.montoPagado + :pagado, "
+            + "r.fechaActualizacion = :ahora "
+            + "where r.proveedorId = :proveedorId")
+    int acumular(@Param("proveedorId") Long proveedorId,
+                 @Param("cantidad") long cantidad,
+                 @Param("facturado") BigDecimal facturado,
+                 @Param("pendiente") BigDecimal pendiente,
+                 @Param("pagado") BigDecimal pagado,
+                 @Param("ahora") LocalDateTime ahora);
+
+    /**
+     * Crea en su propia transacción el resumen vacío de un proveedor que no lo tiene. Si otra
+     * transacción lo crea en paralelo, la clave primaria rechaza el segundo y el llamador puede
+     * ignorar el error: el resumen ya existe y las variaciones se suman con {@link #acumular}.
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Modifying
+    @Query(nativeQuery = true, value = "insert into resumen_proveedores "
+            + "(proveedor_id, cantidad_facturas, total_facturado, monto_pendiente, monto_pagado, fecha_actualizacion) "
+            + "select :proveedorId, 0, 0, 0, 0, :ahora "
+            + "where not exists (select 1 from resumen_proveedores r where r.proveedor_id = :proveedorId)")
+    int crearVacioSiFalta(@Param("proveedorId") Long proveedorId, @Param("ahora") LocalDateTime ahora);
+
+    /**
+     * Lee y bloquea los resúmenes de los proveedores indicados, en orden de ID.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select r from ResumenProveedor r where r.proveedorId in :proveedorIds order by r.proveedorId")
+    List<ResumenProveedor> bloquearPorIds(@Param("proveedorIds") Collection<Long> proveedorIds);
+
+    /**
+     * Página de resúmenes ordenada por ID de proveedor, a partir del ID indicado (exclusivo).
+     */
+    List<ResumenProveedor> findByProveedorIdGreaterThanOrderByProveedorIdAsc(Long proveedorId, Pageable pagina);
+
+    /**
+     * Calcula desde las facturas el resumen de los proveedores que no tienen uno.
+     */
+    @Modifying
+    @Query(nativeQuery = true, value = "insert into resumen_proveedores "
+            + "(proveedor_id, cantidad_facturas, total_facturado, monto_pendiente, monto_pagado, fecha_actualizacion) "
+            + "select p.id, count(f.id), "
+            + "coalesce(sum(case when f.estado <> 'CANCELADA' then f.total_factura else 0 end), 0), "
+            + "coalesce(sum(case when f.estado = 'PENDIENTE' then f.total_factura else 0 end), 0), "
+            + "coalesce(sum(case when f.estado = 'PAGADA' then f.total_factura else 0 end), 0), "
+            + ":ahora "
+            + "from proveedores p left join facturas f on f.proveedor_id = p.id "
+            + "where not exists (select 1 from resumen_proveedores r where r.proveedor_id = p.id) "
+            + "group by p.id")
+    int completarFaltantes(@Param("ahora") LocalDateTime ahora);
+}
@@ -0,0 +1,88 @@
+package com.multipedidos.proveedores.repository;
+
+import com.multipedidos.proveedores.model.TrabajoFactura;
+import com.multipedidos.proveedores.model.TrabajoFactura.EstadoTrabajo;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Repositorio de la cola persistente de facturas asíncronas.
+ */
+@Repository
+public interface TrabajoFacturaRepository extends JpaRepository<TrabajoFactura, Long> {
+
+    /**
+     * Bloquea los trabajos más antiguos en el estado indicado, saltando los que ya bloqueó
+     * otra instancia (lock timeout -2 equivale a SKIP LOCKED), para que varios workers
+     * drenen la cola sin pisarse.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("select t from TrabajoFactura t where t.estado = :estado order by t.id")
+    List<TrabajoFactura> bloquearPorEstado(@Param("estado") EstadoTrabajo estado, Pageable pagina);
+
+    /**
+     * Devuelve a la cola los trabajos que quedaron en proceso desde antes del límite,
+     * por ejemplo tras la caída de la instancia que los había tomado.
+     */
+    @Modifying
+    @Query("update TrabajoFactura t set t.estado = :pendiente, t.fechaActualizacion = :ahora "
+            + "where t.estado = :enProceso and t.fechaActualizacion < :limite")
+    int liberarAtascados(@Param("pendiente") EstadoTrabajo pendiente,
+                         @Param("enProceso") EstadoTrabajo enProceso,
+                         @Param("limite") LocalDateTime limite,
+                         @Param("ahora") LocalDateTime ahora);
+
+    /**
+     * Cierra un trabajo en proceso con la factura creada. Se ejecuta en la transacción que guarda
+     * la factura. Devuelve 0 si el trabajo ya no estaba en proceso, por ejemplo porque volvió a la
+     * cola o lo cerró otro worker.
+     */
+    @Modifying
+    @Query("update TrabajoFactura t set t.estado = :completado, t.facturaId = :facturaId, t.error = null, "
+            + "t.fechaActualizacion = :ahora where t.id = :id and t.estado = :enProceso")
+    int completar(@Param("id") Long id,
+                  @Param("enProceso") EstadoTrabajo enProceso,
+                  @Param("completado") EstadoTrabajo completado,
+                  @Param("facturaId") Long facturaId,
+                  @Param("ahora") LocalDateTime ahora);
+
+    /**
+     * Registra el fallo de un trabajo en proceso: queda fallido si agotó {@code maxIntentos} y
+     * vuelve a la cola si no. Devuelve 0 si el trabajo ya no estaba en proceso.
+     */
+    @Modifying
+    @Query("update TrabajoFactura t set t.estado = case when t.intentos >= :maxIntentos then :fallido else :pendiente end, "
+            + "t.error = :error, t.fechaActualizacion = :ahora where t.id = :id and t.estado = :enProceso")
+    int registrarFallo(@Param("id") Long id,
+                       @Param("enProceso") EstadoTrabajo enProceso,
+                       @Param("pendiente") EstadoTrabajo pendiente,
+                       @Param("fallido") EstadoTrabajo fallido,
+                       @Param("maxIntentos") int maxIntentos,
+                       @Param("error") String error,
+                       @Param("ahora") LocalDateTime ahora);
+
+    /**
+     * IDs de los trabajos en los estados indicados sin cambios desde antes del límite.
+     */
+    @Query("select t.id from TrabajoFactura t where t.estado in :estados and t.fechaActualizacion < :limite")
+    List<Long> buscarTerminados(@Param("estados") Collection<EstadoTrabajo> estados,
+                                @Param("limite") LocalDateTime limite,
+                                Pageable pagina);
+
+    @Modifying
+    @Query("delete from TrabajoFactura t where t.id in :ids")
+    int borrarPorIds(@Param("ids") Collection<Long> ids);
+}
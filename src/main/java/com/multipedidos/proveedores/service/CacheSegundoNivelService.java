@@ -0,0 +1,76 @@
+package com.multipedidos.proveedores.service;
+
+import com.multipedidos.proveedores.dto.EstadisticasCacheDTO;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.stereotype.Service;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * Consulta y administración de la caché de segundo nivel de Hibernate.
+ */
+@Service
+@Slf4j
+public class CacheSegundoNivelService {
+
+    private final SessionFactory sessionFactory;
+    private final CacheManager cacheManager;
+
+    public CacheSegundoNivelService(EntityManagerFactory entityManagerFactory, CacheManager cacheSegundoNivelManager) {
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        this.cacheManager = cacheSegundoNivelManager;
+    }
+
+    /**
+     * Estadísticas de cada región usada desde el arranque.
+     */
+    public List<EstadisticasCacheDTO> obtenerEstadisticas() {
+        Statistics estadisticas = sessionFactory.getStatistics();
+        return Arrays.stream(estadisticas.getSecondLevelCacheRegionNames())
+                .sorted()
+                .map(region -> mapearADTO(region, estadisticas.getCacheRegionStatistics(region)))
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Vacía todas las regiones de entidades y colecciones.
+     */
+    public void invalidarTodo() {
+        log.info("Invalidando la caché de segundo nivel de Hibernate");
+        sessionFactory.getCache().evictAllRegions();
+    }
+
+    /**
+     * Hibernate no informa el tamaño de las regiones JCache; se toma de la caché de Caffeine subyacente.
+     */
+    private long contarEntradas(String region) {
+        Cache<Object, Object> cache = cacheManager.getCache(region);
+        return cache == null ? 0 : cache.unwrap(com.github.benmanes.caffeine.cache.Cache.class).estimatedSize();
+    }
+
+    private EstadisticasCacheDTO mapearADTO(String region, CacheRegionStatistics estadisticas) {
+        if (estadisticas == null) {
+            return null;
+        }
+        long aciertos = estadisticas.getHitCount();
+        long fallos = estadisticas.getMissCount();
+        return EstadisticasCacheDTO.builder()
+                .nombre(region)
+                .entradas(contarEntradas(region))
+                .aciertos(aciertos)
+                .fallos(fallos)
+                .desalojos(0)
+                .tasaAciertos(aciertos + fallos == 0 ? 0.0 : (double) aciertos / (aciertos + fallos))
+                .build();
+    }
+}
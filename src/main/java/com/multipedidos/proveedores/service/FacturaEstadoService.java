@@ -0,0 +1,195 @@
+package com.multipedidos.proveedores.service;
+
+import com.multipedidos.proveedores.dto.CambioEstadoFacturaDTO;
+import com.multipedidos.proveedores.dto.CambioEstadoLoteDTO;
+import com.multipedidos.proveedores.dto.FacturaDTO;
+import com.multipedidos.proveedores.dto.ResultadoCambioEstadoDTO;
+import com.multipedidos.proveedores.model.Factura;
+import com.multipedidos.proveedores.model.Factura.EstadoFactura;
+import com.multipedidos.proveedores.repository.FacturaRepository;
+import com.multipedidos.common.exceptions.DatosInvalidosException;
+import com.multipedidos.common.exceptions.RecursoNoEncontradoException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Servicio para los cambios de estado de facturas.
+ *
+ * Una factura pendiente puede pagarse o cancelarse, y ambos estados son finales. El cambio
+ * individual se hace sobre la entidad y lo protege su versión. El cambio por lote no carga
+ * entidades: cada bloque lee los estados actuales con una consulta y actualiza las facturas
+ * pendientes con un único UPDATE que incrementa la versión. Si otra operación cambió alguna
+ * de esas facturas en el medio, el bloque se revierte y se vuelve a procesar.
+ */
+@Service
+@Slf4j
+public class FacturaEstadoService {
+
+    private static final int INTENTOS_POR_BLOQUE = 3;
+
+    private final FacturaRepository facturaRepository;
+    private final FacturaService facturaService;
+    private final RetencionFacturas retencionFacturas;
+    private final ResumenProveedorService resumenProveedorService;
+    private final TransactionTemplate transactionTemplate;
+    private final int tamanoMaximo;
+    private final int tamanoBloque;
+
+    public FacturaEstadoService(FacturaRepository facturaRepository,
+                                FacturaService facturaService,
+                                RetencionFacturas retencionFacturas,
+                                ResumenProveedorService resumenProveedorService,
+                                TransactionTemplate transactionTemplate,
+                                @Value("${facturacion.estado.tamano-maximo:50000}") int tamanoMaximo,
+                                @Value("${facturacion.estado.tamano-bloque:1000}") int tamanoBloque) {
+        this.facturaRepository = facturaRepository;
+        this.facturaService = facturaService;
+        this.retencionFacturas = retencionFacturas;
+        this.resumenProveedorService = resumenProveedorService;
+        this.transactionTemplate = transactionTemplate;
+        this.tamanoMaximo = tamanoMaximo;
+        this.tamanoBloque = tamanoBloque;
+    }
+
+    /**
+     * Cambia el estado de una factura. Pedir el estado que ya tiene no es un error.
+     */
+    @Transactional
+    public FacturaDTO cambiarEstado(Long id, CambioEstadoFacturaDTO cambio) {
+        Factura factura = facturaRepository.buscarPorId(id, retencionFacturas.inicio())
+                .orElseThrow(() -> new RecursoNoEncontradoException("Factura", id));
+        if (cambio.getVersion() != null && !cambio.getVersion().equals(factura.getVersion())) {
+            throw new ObjectOptimisticLockingFailureException(Factura.class, id);
+        }
+        EstadoFactura anterior = factura.getEstado();
+        EstadoFactura nuevo = cambio.getEstado();
+        if (anterior == nuevo) {
+            return facturaService.mapearADTO(factura);
+        }
+        if (!anterior.permiteCambioA(nuevo)) {
+            throw new DatosInvalidosException("La factura " + id + " está " + anterior + " y no puede pasar a " + nuevo);
+        }
+        factura.setEstado(nuevo);
+        // El UPDATE se emite aquí, condicionado a la versión leída
+        facturaRepository.flush();
+        resumenProveedorService.registrarCambioEstado(factura.getProveedorId(), factura.getTotalFactura(), anterior, nuevo);
+        log.info("Factura {} cambió de {} a {}", id, anterior, nuevo);
+        return facturaService.mapearADTO(factura);
+    }
+
+    /**
+     * Cambia el estado de un conjunto de facturas por bloques, cada uno en su propia transacción.
+     * Ante un error los bloques anteriores quedan aplicados; la operación es idempotente, por lo
+     * que puede repetirse con los mismos IDs.
+     */
+    public ResultadoCambioEstadoDTO cambiarEstados(CambioEstadoLoteDTO cambio) {
+        EstadoFactura nuevo = cambio.getEstado();
+        if (nuevo == EstadoFactura.PENDIENTE) {
+            throw new DatosInvalidosException("Una factura no puede volver a " + EstadoFactura.PENDIENTE);
+        }
+        // Ordenados por ID, las transacciones concurrentes bloquean las filas en el mismo orden
+        List<Long> ids = cambio.getFacturaIds().stream()
+                .filter(Objects::nonNull)
+                .collect(TreeSet<Long>::new, Set::add, Set::addAll)
+                .stream()
+                .toList();
+        if (ids.size() > tamanoMaximo) {
+            throw new DatosInvalidosException("El lote admite como máximo " + tamanoMaximo + " facturas");
+        }
+        log.info("Cambiando a {} el estado de {} facturas", nuevo, ids.size());
+
+        Resultado total = new Resultado();
+        for (int desde = 0; desde < ids.size(); desde += tamanoBloque) {
+            List<Long> bloque = ids.subList(desde, Math.min(desde + tamanoBloque, ids.size()));
+            total.sumar(cambiarBloqueConReintentos(bloque, nuevo));
+        }
+        log.info("Cambio de estado a {}: {} actualizadas, {} sin cambios, {} no encontradas, {} rechazadas",
+                nuevo, total.actualizadas, total.sinCambios, total.noEncontradas.size(), total.rechazadas.size());
+        return ResultadoCambioEstadoDTO.builder()
+                .actualizadas(total.actualizadas)
+                .sinCambios(total.sinCambios)
+                .noEncontradas(total.noEncontradas)
+                .rechazadas(total.rechazadas)
+                .build();
+    }
+
+    private Resultado cambiarBloqueConReintentos(List<Long> bloque, EstadoFactura nuevo) {
+        for (int intento = 1; ; intento++) {
+            try {
+                return transactionTemplate.execute(estado -> cambiarBloque(bloque, nuevo));
+            } catch (OptimisticLockingFailureException e) {
+                if (intento == INTENTOS_POR_BLOQUE) {
+                    throw e;
+                }
+                log.warn("Facturas modificadas durante el cambio de estado, se reintenta el bloque ({}/{})",
+                        intento, INTENTOS_POR_BLOQUE);
+            }
+        }
+    }
+
+    private Resultado cambiarBloque(List<Long> bloque, EstadoFactura nuevo) {
+        Resultado resultado = new Resultado();
+        Set<Long> encontradas = new HashSet<>();
+        List<Long> aCambiar = new ArrayList<>();
+        Map<Long, BigDecimal> totalPorProveedor = new HashMap<>();
+        LocalDateTime inicio = retencionFacturas.inicio();
+        for (FacturaRepository.EstadoActual actual : facturaRepository.buscarEstados(bloque, inicio)) {
+            encontradas.add(actual.getId());
+            if (actual.getEstado() == nuevo) {
+                resultado.sinCambios++;
+            } else if (actual.getEstado().permiteCambioA(nuevo)) {
+                aCambiar.add(actual.getId());
+                totalPorProveedor.merge(actual.getProveedorId(), actual.getTotalFactura(), BigDecimal::add);
+            } else {
+                resultado.rechazadas.add(actual.getId());
+            }
+        }
+        resultado.rechazadas.sort(null);
+        bloque.stream()
+                .filter(id -> !encontradas.contains(id))
+                .forEach(resultado.noEncontradas::add);
+        if (!aCambiar.isEmpty()) {
+            int actualizadas = facturaRepository.cambiarEstado(aCambiar, inicio, EstadoFactura.PENDIENTE, nuevo);
+            if (actualizadas != aCambiar.size()) {
+                throw new ObjectOptimisticLockingFailureException(
+                        "Se esperaban " + aCambiar.size() + " facturas pendientes y se actualizaron " + actualizadas, null);
+            }
+            resumenProveedorService.registrarCambiosEstado(totalPorProveedor, EstadoFactura.PENDIENTE, nuevo);
+            resultado.actualizadas = actualizadas;
+        }
+        return resultado;
+    }
+
+    /**
+     * Resultado acumulado de uno o varios bloques.
+     */
+    private static final class Resultado {
+        private int actualizadas;
+        private int sinCambios;
+        private final List<Long> noEncontradas = new ArrayList<>();
+        private final List<Long> rechazadas = new ArrayList<>();
+
+        void sumar(Resultado otro) {
+            actualizadas += otro.actualizadas;
+            sinCambios += otro.sinCambios;
+            noEncontradas.addAll(otro.noEncontradas);
+            rechazadas.addAll(otro.rechazadas);
+        }
+    }
+}
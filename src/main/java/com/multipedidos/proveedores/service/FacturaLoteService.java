@@ -0,0 +1,256 @@
+package com.multipedidos.proveedores.service;
+
+import com.multipedidos.proveedores.client.PedidosClient;
+import com.multipedidos.proveedores.client.ResultadoPedidos;
+import com.multipedidos.proveedores.dto.FacturaInputDTO;
+import com.multipedidos.proveedores.dto.LoteFacturasDTO;
+import com.multipedidos.proveedores.dto.PedidoReferenciaDTO;
+import com.multipedidos.proveedores.dto.ResultadoFacturaLoteDTO;
+import com.multipedidos.proveedores.model.Factura;
+import com.multipedidos.proveedores.repository.FacturaRepository;
+import com.multipedidos.common.exceptions.DatosInvalidosException;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+/**
+ * Servicio para la creación masiva de facturas.
+ * Valida los proveedores y los pedidos ya facturados con a lo sumo una consulta cada uno,
+ * consulta cada pedido distinto en el microservicio A una sola vez y persiste en bloques, cada uno en su propia transacción. Un error en una factura no hace
+ * fallar el resto del lote.
+ */
+@Service
+@Slf4j
+public class FacturaLoteService {
+
+    private final ProveedorService proveedorService;
+    private final FacturaRepository facturaRepository;
+    private final FacturaService facturaService;
+    private final ResumenProveedorService resumenProveedorService;
+    private final PedidosFacturados pedidosFacturados;
+    private final PedidosClient pedidosClient;
+    private final TransactionTemplate transactionTemplate;
+    private final Validator validator;
+    private final int tamanoMaximo;
+    private final int tamanoBloque;
+
+    public FacturaLoteService(ProveedorService proveedorService,
+                              FacturaRepository facturaRepository,
+                              FacturaService facturaService,
+                              ResumenProveedorService resumenProveedorService,
+                              PedidosFacturados pedidosFacturados,
+                              PedidosClient pedidosClient,
+                              TransactionTemplate transactionTemplate,
+                              Validator validator,
+                              @Value("${facturacion.lote.tamano-maximo:5000}") int tamanoMaximo,
+                              @Value("${facturacion.lote.tamano-bloque:500}") int tamanoBloque) {
+        this.proveedorService = proveedorService;
+        this.facturaRepository = facturaRepository;
+        this.facturaService = facturaService;
+        this.resumenProveedorService = resumenProveedorService;
+        this.pedidosFacturados = pedidosFacturados;
+        this.pedidosClient = pedidosClient;
+        this.transactionTemplate = transactionTemplate;
+        this.validator = validator;
+        this.tamanoMaximo = tamanoMaximo;
+        this.tamanoBloque = tamanoBloque;
+    }
+
+    /**
+     * Crea un lote de facturas y devuelve un resultado por elemento, en el orden recibido.
+     */
+    public LoteFacturasDTO crearFacturas(List<FacturaInputDTO> entradas) {
+        if (entradas == null || entradas.isEmpty()) {
+            throw new DatosInvalidosException("El lote debe contener al menos una factura");
+        }
+        if (entradas.size() > tamanoMaximo) {
+            throw new DatosInvalidosException("El lote admite como máximo " + tamanoMaximo + " facturas");
+        }
+        log.info("Creando lote de {} facturas", entradas.size());
+
+        ResultadoFacturaLoteDTO[] resultados = new ResultadoFacturaLoteDTO[entradas.size()];
+
+        // Validar cada factura por separado
+        List<Integer> validas = new ArrayList<>();
+        for (int i = 0; i < entradas.size(); i++) {
+            String error = validar(entradas.get(i));
+            if (error == null) {
+                validas.add(i);
+            } else {
+                resultados[i] = fallida(i, error);
+            }
+        }
+
+        // Verificar los proveedores: los conocidos en memoria y el resto con una sola consulta
+        Set<Long> proveedorIds = validas.stream()
+                .map(i -> entradas.get(i).getProveedorId())
+                .collect(Collectors.toSet());
+        Set<Long> existentes = proveedorService.filtrarExistentes(proveedorIds);
+        List<Integer> conProveedor = new ArrayList<>();
+        for (Integer i : validas) {
+            Long proveedorId = entradas.get(i).getProveedorId();
+            if (existentes.contains(proveedorId)) {
+                conProveedor.add(i);
+            } else {
+                resultados[i] = fallida(i, "El proveedor con ID " + proveedorId + " no existe");
+            }
+        }
+
+        // Cada pedido puede aparecer en una sola factura del lote: la primera que lo incluye
+        Map<Long, Integer> facturaPorPedido = new HashMap<>();
+        List<Integer> sinRepetidos = new ArrayList<>();
+        for (Integer i : conProveedor) {
+            String error = null;
+            Set<Long> propios = new HashSet<>();
+            for (PedidoReferenciaDTO pedido : entradas.get(i).getPedidos()) {
+                Integer otra = facturaPorPedido.get(pedido.getPedidoId());
+                if (!propios.add(pedido.getPedidoId())) {
+                    error = "El pedido " + pedido.getPedidoId() + " está repetido en la factura";
+                    break;
+                }
+                if (otra != null) {
+                    error = "El pedido " + pedido.getPedidoId() + " ya está incluido en la factura " + otra + " del lote";
+                    break;
+                }
+            }
+            if (error == null) {
+                propios.forEach(pedidoId -> facturaPorPedido.put(pedidoId, i));
+                sinRepetidos.add(i);
+            } else {
+                resultados[i] = fallida(i, error);
+            }
+        }
+
+        // Descartar las facturas con pedidos ya facturados, con a lo sumo una consulta
+        Set<Long> pedidoIds = new LinkedHashSet<>();
+        sinRepetidos.forEach(i -> entradas.get(i).getPedidos().stream()
+                .map(PedidoReferenciaDTO::getPedidoId)
+                .forEach(pedidoIds::add));
+        Set<Long> yaFacturados = pedidoIds.isEmpty() ? Set.of() : pedidosFacturados.buscarFacturados(pedidoIds);
+        List<Integer> aGuardar = new ArrayList<>();
+        for (Integer i : sinRepetidos) {
+            Set<Long> facturados = entradas.get(i).getPedidos().stream()
+                    .map(PedidoReferenciaDTO::getPedidoId)
+                    .filter(yaFacturados::contains)
+                    .collect(Collectors.toCollection(TreeSet::new));
+            if (facturados.isEmpty()) {
+                aGuardar.add(i);
+            } else {
+                resultados[i] = fallida(i, "Los pedidos " + facturados + " ya fueron facturados");
+            }
+        }
+        pedidoIds.removeAll(yaFacturados);
+
+        // Validar los pedidos del lote en el microservicio A, una vez por pedido distinto
+        if (!pedidoIds.isEmpty()) {
+            ResultadoPedidos pedidosRemotos = pedidosClient.obtenerPedidos(pedidoIds);
+            if (!pedidosRemotos.getFaltantes().isEmpty() || !pedidosRemotos.getErrores().isEmpty()) {
+                log.warn("Lote: {} pedidos no encontrados y {} sin validar en microservicio A, pero se continuará con las facturas",
+                        pedidosRemotos.getFaltantes().size(), pedidosRemotos.getErrores().size());
+            }
+        }
+
+        // Persistir por bloques
+        for (int desde = 0; desde < aGuardar.size(); desde += tamanoBloque) {
+            List<Integer> bloque = aGuardar.subList(desde, Math.min(desde + tamanoBloque, aGuardar.size()));
+            guardarBloque(bloque, entradas, resultados);
+        }
+
+        int creadas = (int) Arrays.stream(resultados).filter(r -> r.getFacturaId() != null).count();
+        log.info("Lote procesado: {} facturas creadas, {} con errores", creadas, resultados.length - creadas);
+        return LoteFacturasDTO.builder()
+                .creadas(creadas)
+                .fallidas(resultados.length - creadas)
+                .resultados(Arrays.asList(resultados))
+                .build();
+    }
+
+    /**
+     * Guarda un bloque en una sola transacción; si falla, reintenta cada factura por separado
+     * para aislar las que provocan el error.
+     */
+    private void guardarBloque(List<Integer> bloque, List<FacturaInputDTO> entradas,
+                               ResultadoFacturaLoteDTO[] resultados) {
+        try {
+            List<Long> ids = transactionTemplate.execute(estado -> {
+                List<Factura> facturas = facturaRepository.saveAll(bloque.stream()
+                        .map(i -> facturaService.construirFactura(entradas.get(i)))
+                        .collect(Collectors.toList()));
+                resumenProveedorService.registrarFacturas(facturas);
+                pedidosFacturados.reservar(facturas);
+                return facturas.stream()
+                        .map(Factura::getId)
+                        .collect(Collectors.toList());
+            });
+            for (int k = 0; k < bloque.size(); k++) {
+                resultados[bloque.get(k)] = creada(bloque.get(k), ids.get(k));
+                facturaService.registrarPedidosPorFactura(entradas.get(bloque.get(k)).getPedidos().size());
+            }
+        } catch (RuntimeException e) {
+            log.warn("No se pudo guardar un bloque de {} facturas, se reintentarán una por una: {}",
+                    bloque.size(), e.getMessage());
+            bloque.forEach(i -> resultados[i] = guardarIndividual(i, entradas.get(i)));
+        }
+    }
+
+    private ResultadoFacturaLoteDTO guardarIndividual(int indice, FacturaInputDTO entrada) {
+        try {
+            Long id = transactionTemplate.execute(estado -> {
+                Factura factura = facturaRepository.save(facturaService.construirFactura(entrada));
+                resumenProveedorService.registrarFactura(factura);
+                pedidosFacturados.reservar(List.of(factura));
+                return factura.getId();
+            });
+            facturaService.registrarPedidosPorFactura(entrada.getPedidos().size());
+            return creada(indice, id);
+        } catch (DataIntegrityViolationException e) {
+            if (!PedidosFacturados.esPedidoYaFacturado(e)) {
+                log.warn("No se pudo guardar la factura {} del lote: {}", indice, e.getMessage());
+                return fallida(indice, "No se pudo registrar la factura");
+            }
+            return fallida(indice, "Alguno de los pedidos ya fue facturado");
+        } catch (RuntimeException e) {
+            log.warn("No se pudo guardar la factura {} del lote: {}", indice, e.getMessage());
+            return fallida(indice, "No se pudo registrar la factura");
+        }
+    }
+
+    private String validar(FacturaInputDTO entrada) {
+        if (entrada == null) {
+            return "La factura es obligatoria";
+        }
+        Set<ConstraintViolation<FacturaInputDTO>> violaciones = validator.validate(entrada);
+        if (violaciones.isEmpty()) {
+            return null;
+        }
+        return violaciones.stream()
+                .map(ConstraintViolation::getMessage)
+                .filter(Objects::nonNull)
+                .sorted()
+                .collect(Collectors.joining("; "));
+    }
+
+    private static ResultadoFacturaLoteDTO creada(int indice, Long facturaId) {
+        return ResultadoFacturaLoteDTO.builder().indice(indice).facturaId(facturaId).build();
+    }
+
+    private static ResultadoFacturaLoteDTO fallida(int indice, String error) {
+        return ResultadoFacturaLoteDTO.builder().indice(indice).error(error).build();
+    }
+}
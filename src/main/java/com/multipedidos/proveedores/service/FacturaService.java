@@ -1,23 +1,47 @@
 package com.multipedidos.proveedores.service;
 
 import com.multipedidos.proveedores.client.PedidosClient;
+import com.multipedidos.proveedores.client.ResultadoPedidos;
 import com.multipedidos.proveedores.dto.FacturaDTO;
 import com.multipedidos.proveedores.dto.FacturaInputDTO;
+import com.multipedidos.proveedores.dto.FiltroFacturasDTO;
+import com.multipedidos.proveedores.dto.PaginaDTO;
 import com.multipedidos.proveedores.dto.PedidoReferenciaDTO;
 import com.multipedidos.proveedores.model.Factura;
 import com.multipedidos.proveedores.model.PedidoReferencia;
 import com.multipedidos.proveedores.repository.FacturaRepository;
+import com.multipedidos.proveedores.util.CursorPaginacion;
 import com.multipedidos.common.exceptions.DatosInvalidosException;
 import com.multipedidos.common.exceptions.RecursoNoEncontradoException;
 import com.multipedidos.common.utils.CalculadoraDescuentos;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Servicio para la gestión de facturas.
@@ -28,15 +52,36 @@ import java.util.stream.Collectors;
 @Slf4j
 public class FacturaService {
 
+    private static final int FACTURAS_POR_ENVIO = 200;
+    private static final String PEDIDOS_POR_FACTURA = "facturacion.factura.pedidos";
+
     private final FacturaRepository facturaRepository;
+    private final RetencionFacturas retencionFacturas;
     private final ProveedorService proveedorService;
+    private final ResumenProveedorService resumenProveedorService;
+    private final PedidosFacturados pedidosFacturados;
     private final PedidosClient pedidosClient;
+    private final ObjectMapper objectMapper;
+    private final EntityManager entityManager;
+    private final MeterRegistry meterRegistry;
+    private final TransactionTemplate transactionTemplate;
 
     /**
      * Crea una nueva factura.
+     * Las validaciones, incluida la consulta al microservicio A, se hacen antes de abrir la
+     * transacción para no retener una conexión de la base mientras se espera la respuesta.
      */
-    @Transactional
+    @Timed("facturacion.servicio")
     public FacturaDTO crearFactura(FacturaInputDTO input) {
+        return crearFactura(input, creada -> { });
+    }
+
+    /**
+     * Crea una nueva factura y ejecuta {@code alGuardar} dentro de la transacción que la guarda,
+     * de modo que lo que escriba se confirme o se descarte junto con la factura.
+     */
+    @Timed("facturacion.servicio")
+    public FacturaDTO crearFactura(FacturaInputDTO input, Consumer<FacturaDTO> alGuardar) {
         log.info("Creando nueva factura para proveedor ID: {}", input.getProveedorId());
 
         // Verificar que el proveedor existe
@@ -49,83 +94,266 @@ public class FacturaService {
             throw new DatosInvalidosException("La factura debe tener al menos un pedido");
         }
 
-        // Validar que los pedidos existen en el microservicio A (opcional pero recomendado)
-        for (PedidoReferenciaDTO pedidoRef : input.getPedidos()) {
-            boolean existe = pedidosClient.existePedido(pedidoRef.getPedidoId());
-            if (!existe) {
-                log.warn("Pedido {} no encontrado en microservicio A, pero se continuará con la factura", 
-                        pedidoRef.getPedidoId());
+        // Validar que ningún pedido se repita ni haya sido facturado antes
+        Set<Long> pedidoIds = new LinkedHashSet<>();
+        for (PedidoReferenciaDTO pedido : input.getPedidos()) {
+            if (!pedidoIds.add(pedido.getPedidoId())) {
+                throw new DatosInvalidosException("El pedido " + pedido.getPedidoId() + " está repetido en la factura");
             }
         }
+        Set<Long> yaFacturados = pedidosFacturados.buscarFacturados(pedidoIds);
+        if (!yaFacturados.isEmpty()) {
+            throw new DatosInvalidosException("Los pedidos " + new TreeSet<>(yaFacturados) + " ya fueron facturados");
+        }
+
+        // Validar que los pedidos existen en el microservicio A (opcional pero recomendado)
+        ResultadoPedidos pedidosRemotos = pedidosClient.obtenerPedidos(pedidoIds);
+        pedidosRemotos.getFaltantes().forEach(pedidoId ->
+                log.warn("Pedido {} no encontrado en microservicio A, pero se continuará con la factura", pedidoId));
+        pedidosRemotos.getErrores().forEach(pedidoId ->
+                log.warn("No se pudo validar el pedido {} en microservicio A, pero se continuará con la factura", pedidoId));
 
+        Factura factura = construirFactura(input);
+        FacturaDTO creada = transactionTemplate.execute(estado -> {
+            Factura guardada;
+            try {
+                guardada = facturaRepository.save(factura);
+                pedidosFacturados.reservar(List.of(guardada));
+                // Se envía de inmediato para que la clave de pedidos_facturados detecte un pedido facturado en paralelo
+                facturaRepository.flush();
+            } catch (DataIntegrityViolationException e) {
+                if (PedidosFacturados.esPedidoYaFacturado(e)) {
+                    throw new DatosInvalidosException("Alguno de los pedidos ya fue facturado");
+                }
+                throw e;
+            }
+            resumenProveedorService.registrarFactura(guardada);
+            FacturaDTO dto = mapearADTO(guardada);
+            alGuardar.accept(dto);
+            return dto;
+        });
+        registrarPedidosPorFactura(pedidoIds.size());
+        log.info("Factura creada con ID: {} - Total: {}", creada.getId(), creada.getTotalFactura());
+
+        return creada;
+    }
+
+    /**
+     * Construye la entidad de una factura ya validada: calcula el total con descuentos
+     * y agrega las referencias de pedidos.
+     */
+    Factura construirFactura(FacturaInputDTO input) {
         // Calcular total de la factura
-        BigDecimal totalFactura = input.getPedidos().stream()
-                .map(PedidoReferenciaDTO::getTotal)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        BigDecimal totalFactura = sumarTotales(input.getPedidos());
 
         // Usar la librería común para aplicar descuentos adicionales al total
         BigDecimal totalConDescuento = CalculadoraDescuentos.aplicarDescuentoPorMonto(totalFactura);
 
-        // Convertir DTOs a entidades
-        List<PedidoReferencia> referencias = input.getPedidos().stream()
-                .map(dto -> PedidoReferencia.builder()
-                        .pedidoId(dto.getPedidoId())
-                        .total(dto.getTotal())
-                        .build())
-                .collect(Collectors.toList());
-
         // Crear factura
         Factura factura = Factura.builder()
                 .proveedorId(input.getProveedorId())
-                .pedidos(referencias)
                 .totalFactura(totalConDescuento)
                 .estado(Factura.EstadoFactura.PENDIENTE)
                 .build();
 
-        Factura guardada = facturaRepository.save(factura);
-        log.info("Factura creada con ID: {} - Total: {}", guardada.getId(), totalConDescuento);
+        // Convertir DTOs a entidades
+        input.getPedidos().forEach(dto -> factura.agregarPedido(PedidoReferencia.builder()
+                .pedidoId(dto.getPedidoId())
+                .total(dto.getTotal())
+                .build()));
 
-        return mapearADTO(guardada);
+        return factura;
     }
 
     /**
-     * Obtiene todas las facturas.
+     * Registra la cantidad de pedidos de una factura creada en la distribución
+     * {@code facturacion.factura.pedidos}.
      */
+    void registrarPedidosPorFactura(int cantidadPedidos) {
+        meterRegistry.summary(PEDIDOS_POR_FACTURA).record(cantidadPedidos);
+    }
+
+    /**
+     * Suma los totales de los pedidos, antes de descuentos.
+     */
+    static BigDecimal sumarTotales(List<PedidoReferenciaDTO> pedidos) {
+        return pedidos.stream()
+                .map(PedidoReferenciaDTO::getTotal)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    /**
+     * Obtiene una página de facturas, de la más reciente a la más antigua.
+     * Sin detalle de pedidos la página se resuelve con una sola consulta; con detalle, los
+     * pedidos de toda la página se cargan por lotes y no con una consulta por factura.
+     */
+    @Timed("facturacion.servicio")
     @Transactional(readOnly = true)
-    public List<FacturaDTO> listarFacturas() {
-        log.info("Listando todas las facturas");
-        return facturaRepository.findAll().stream()
-                .map(this::mapearADTO)
-                .collect(Collectors.toList());
+    public PaginaDTO<FacturaDTO> listarFacturas(String cursor, Integer limite, boolean incluirPedidos) {
+        int tamano = CursorPaginacion.normalizarLimite(limite);
+        log.info("Listando facturas (límite {})", tamano);
+        Pageable consulta = CursorPaginacion.consulta(tamano);
+        List<Factura> facturas;
+        if (cursor == null) {
+            facturas = facturaRepository.buscarPagina(retencionFacturas.inicio(), consulta);
+        } else {
+            CursorPaginacion.ClaveFecha clave = CursorPaginacion.decodificarFechaId(cursor);
+            facturas = facturaRepository.buscarPaginaDesde(retencionFacturas.inicio(), clave.fecha(), clave.id(),
+                    consulta);
+        }
+        return paginar(facturas, tamano, incluirPedidos);
     }
 
     /**
-     * Obtiene una factura por ID.
+     * Obtiene una factura por ID. La factura y sus pedidos se resuelven desde la caché de
+     * segundo nivel cuando ya fueron leídos antes; si no, la consulta acota la fecha a la
+     * ventana de retención. Si la versión en caché no es la indicada, leída de la base con
+     * {@link #obtenerVersion}, la factura se vuelve a leer de la base.
      */
+    @Timed("facturacion.servicio")
     @Transactional(readOnly = true)
-    public FacturaDTO obtenerFactura(Long id) {
+    public FacturaDTO obtenerFactura(Long id, Long versionActual) {
         log.info("Buscando factura con ID: {}", id);
-        Factura factura = facturaRepository.findById(id)
-                .orElseThrow(() -> new RecursoNoEncontradoException("Factura", id));
+        // findById sin la caché revisaría la clave primaria de cada partición
+        Optional<Factura> encontrada = entityManager.getEntityManagerFactory().getCache().contains(Factura.class, id)
+                ? facturaRepository.findById(id)
+                : facturaRepository.buscarPorId(id, retencionFacturas.inicio());
+        Factura factura = encontrada.orElseThrow(() -> new RecursoNoEncontradoException("Factura", id));
+        if (!factura.getVersion().equals(versionActual)) {
+            // La cambió otra instancia: la caché de segundo nivel es local y no se invalidó
+            entityManager.refresh(factura);
+        }
         return mapearADTO(factura);
     }
 
     /**
-     * Obtiene facturas de un proveedor específico.
+     * Obtiene la versión de una factura sin cargar sus pedidos, para resolver lecturas
+     * condicionales. Se lee siempre de la base y no de la caché de segundo nivel, que otra
+     * instancia puede haber dejado desactualizada.
+     */
+    @Timed("facturacion.servicio")
+    @Transactional(readOnly = true)
+    public Long obtenerVersion(Long id) {
+        return facturaRepository.buscarVersion(id, retencionFacturas.inicio())
+                .orElseThrow(() -> new RecursoNoEncontradoException("Factura", id));
+    }
+
+    /**
+     * Obtiene una página de facturas de un proveedor específico, de la más reciente a la más antigua.
+     */
+    @Timed("facturacion.servicio")
+    @Transactional(readOnly = true)
+    public PaginaDTO<FacturaDTO> listarFacturasPorProveedor(Long proveedorId, String cursor, Integer limite,
+                                                            boolean incluirPedidos) {
+        int tamano = CursorPaginacion.normalizarLimite(limite);
+        log.info("Listando facturas del proveedor ID: {} (límite {})", proveedorId, tamano);
+        Pageable consulta = CursorPaginacion.consulta(tamano);
+        List<Factura> facturas;
+        if (cursor == null) {
+            facturas = facturaRepository.buscarPaginaPorProveedor(proveedorId, retencionFacturas.inicio(), consulta);
+        } else {
+            CursorPaginacion.ClaveFecha clave = CursorPaginacion.decodificarFechaId(cursor);
+            facturas = facturaRepository.buscarPaginaPorProveedorDesde(proveedorId, retencionFacturas.inicio(),
+                    clave.fecha(), clave.id(), consulta);
+        }
+        return paginar(facturas, tamano, incluirPedidos);
+    }
+
+    /**
+     * Busca una página de facturas que cumplen los filtros indicados, de la más reciente a la
+     * más antigua. El cursor solo guarda la posición: las páginas siguientes deben pedirse con
+     * los mismos filtros.
+     */
+    @Timed("facturacion.servicio")
+    @Transactional(readOnly = true)
+    public PaginaDTO<FacturaDTO> buscarFacturas(FiltroFacturasDTO filtro, String cursor, Integer limite,
+                                                boolean incluirPedidos) {
+        int tamano = CursorPaginacion.normalizarLimite(limite);
+        if (filtro.getFechaDesde() != null && filtro.getFechaHasta() != null
+                && filtro.getFechaDesde().isAfter(filtro.getFechaHasta())) {
+            throw new DatosInvalidosException("La fecha desde no puede ser posterior a la fecha hasta");
+        }
+        if (filtro.getTotalMinimo() != null && filtro.getTotalMaximo() != null
+                && filtro.getTotalMinimo().compareTo(filtro.getTotalMaximo()) > 0) {
+            throw new DatosInvalidosException("El total mínimo no puede ser mayor que el total máximo");
+        }
+        log.info("Buscando facturas con {} (límite {})", filtro, tamano);
+        CursorPaginacion.ClaveFecha desde = cursor == null ? null : CursorPaginacion.decodificarFechaId(cursor);
+        List<Factura> facturas = facturaRepository.buscar(filtro, retencionFacturas.inicio(), desde, tamano + 1);
+        return paginar(facturas, tamano, incluirPedidos);
+    }
+
+    /**
+     * Exporta todas las facturas como NDJSON (un objeto JSON por línea) en el flujo indicado.
+     * Las facturas se leen del cursor de la base de datos en bloques: los pedidos de cada bloque
+     * se cargan juntos y el contexto de persistencia se vacía tras escribirlo, por lo que la
+     * memoria no crece con el número de facturas. La exportación no lee ni escribe la caché
+     * de segundo nivel.
      */
+    @Timed("facturacion.servicio")
     @Transactional(readOnly = true)
-    public List<FacturaDTO> listarFacturasPorProveedor(Long proveedorId) {
-        log.info("Listando facturas del proveedor ID: {}", proveedorId);
-        return facturaRepository.findByProveedorId(proveedorId).stream()
-                .map(this::mapearADTO)
+    public void exportarFacturas(OutputStream salida) throws IOException {
+        log.info("Exportando facturas en formato NDJSON");
+        // Un recorrido completo desplazaría de la caché de segundo nivel las entradas de uso frecuente
+        entityManager.unwrap(Session.class).setCacheMode(CacheMode.IGNORE);
+        ObjectWriter escritor = objectMapper.writerFor(FacturaDTO.class);
+        List<Factura> bloque = new ArrayList<>(FACTURAS_POR_ENVIO);
+        long exportadas = 0;
+        try (Stream<Factura> facturas = facturaRepository.recorrerTodas()) {
+            Iterator<Factura> iterador = facturas.iterator();
+            while (iterador.hasNext()) {
+                bloque.add(iterador.next());
+                // El primer envío es de una sola factura para que el cliente reciba datos de inmediato
+                if (exportadas == 0 || bloque.size() == FACTURAS_POR_ENVIO) {
+                    exportadas += escribirBloque(bloque, escritor, salida);
+                }
+            }
+        }
+        exportadas += escribirBloque(bloque, escritor, salida);
+        log.info("Exportación finalizada: {} facturas", exportadas);
+    }
+
+    private int escribirBloque(List<Factura> bloque, ObjectWriter escritor, OutputStream salida) throws IOException {
+        for (Factura factura : bloque) {
+            salida.write(escritor.writeValueAsBytes(mapearADTO(factura)));
+            salida.write('\n');
+        }
+        salida.flush();
+        entityManager.clear();
+        int escritas = bloque.size();
+        bloque.clear();
+        return escritas;
+    }
+
+    /**
+     * Convierte el resultado de una consulta keyset (que trae un elemento extra) en una página.
+     */
+    private PaginaDTO<FacturaDTO> paginar(List<Factura> facturas, int tamano, boolean incluirPedidos) {
+        String siguiente = null;
+        if (facturas.size() > tamano) {
+            Factura ultima = facturas.get(tamano - 1);
+            siguiente = CursorPaginacion.codificar(ultima.getFechaFactura(), ultima.getId());
+        }
+        List<FacturaDTO> items = facturas.stream()
+                .limit(tamano)
+                .map(factura -> mapearADTO(factura, incluirPedidos))
                 .collect(Collectors.toList());
+        return new PaginaDTO<>(items, siguiente);
     }
 
     /**
      * Mapea una entidad Factura a DTO.
      */
-    private FacturaDTO mapearADTO(Factura factura) {
-        List<PedidoReferenciaDTO> pedidosDTO = factura.getPedidos().stream()
+    FacturaDTO mapearADTO(Factura factura) {
+        return mapearADTO(factura, true);
+    }
+
+    /**
+     * Mapea una entidad Factura a DTO. Sin detalle no se accede a la colección de pedidos,
+     * por lo que no se dispara su carga.
+     */
+    private FacturaDTO mapearADTO(Factura factura, boolean incluirPedidos) {
+        List<PedidoReferenciaDTO> pedidosDTO = !incluirPedidos ? null : factura.getPedidos().stream()
                 .map(p -> PedidoReferenciaDTO.builder()
                         .pedidoId(p.getPedidoId())
                         .total(p.getTotal())
@@ -137,6 +365,8 @@ public class FacturaService {
                 .proveedorId(factura.getProveedorId())
                 .pedidos(pedidosDTO)
                 .totalFactura(factura.getTotalFactura())
+                .estado(factura.getEstado())
+                .version(factura.getVersion())
                 .build();
     }
 }
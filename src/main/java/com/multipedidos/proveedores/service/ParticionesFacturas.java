@@ -0,0 +1,140 @@
+package com.multipedidos.proveedores.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Mantenimiento de las particiones mensuales de facturas y pedidos_referencias (PostgreSQL).
+ *
+ * Al iniciar y cada día crea las particiones de los próximos {@code meses-adelantados} meses,
+ * para que las altas nunca encuentren un mes sin partición; si no, caen en las particiones por
+ * defecto y se registra un error cuando a la última partición le queda menos de un mes. Al menos
+ * una instancia debe tener {@code habilitado=true}. Las particiones de los meses
+ * anteriores a {@code retencion-meses} se separan de a una, cada una en su propia transacción,
+ * y se mueven al esquema de archivo o se eliminan según {@code accion}. Los pedidos facturados y
+ * los resúmenes por proveedor conservan los datos de las facturas archivadas.
+ */
+@Component
+@ConditionalOnProperty(name = "facturacion.particiones.habilitado", havingValue = "true")
+@Slf4j
+public class ParticionesFacturas {
+
+    private static final DateTimeFormatter SUFIJO = DateTimeFormatter.ofPattern("yyyy_MM", Locale.ROOT);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int mesesAdelantados;
+    private final RetencionFacturas retencion;
+    private final String esquemaArchivo;
+
+    public ParticionesFacturas(JdbcTemplate jdbcTemplate,
+                               @Value("${facturacion.particiones.meses-adelantados:3}") int mesesAdelantados,
+                               RetencionFacturas retencion,
+                               @Value("${facturacion.particiones.accion:archivar}") String accion,
+                               @Value("${facturacion.particiones.esquema-archivo:facturacion_archivo}") String esquemaArchivo) {
+        if (mesesAdelantados < 1) {
+            throw new IllegalArgumentException("facturacion.particiones.meses-adelantados debe ser al menos 1");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.mesesAdelantados = mesesAdelantados;
+        this.retencion = retencion;
+        this.esquemaArchivo = switch (accion) {
+            case "archivar" -> esquemaArchivo;
+            case "eliminar" -> null;
+            default -> throw new IllegalArgumentException(
+                    "facturacion.particiones.accion debe ser archivar o eliminar: " + accion);
+        };
+    }
+
+    /**
+     * Crea al iniciar las particiones que falten; un fallo no impide el arranque.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void preparar() {
+        try {
+            crearParticiones();
+        } catch (DataAccessException e) {
+            log.error("No se pudieron crear las particiones de facturas: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Crea las particiones futuras y archiva las que superan la retención.
+     */
+    @Scheduled(cron = "${facturacion.particiones.cron:0 15 3 * * *}")
+    public void mantener() {
+        crearParticiones();
+        archivarParticiones();
+    }
+
+    /**
+     * Crea las particiones desde el mes actual hasta {@code meses-adelantados} meses adelante y
+     * registra un error si la última partición no cubre al menos el mes siguiente, por ejemplo
+     * porque la creación viene fallando.
+     */
+    public void crearParticiones() {
+        LocalDate mesActual = YearMonth.now().atDay(1);
+        try {
+            Integer creadas = jdbcTemplate.queryForObject("select crear_particiones_facturas(?::date, ?::date)",
+                    Integer.class, mesActual, mesActual.plusMonths(mesesAdelantados));
+            if (creadas != null && creadas > 0) {
+                log.info("Particiones de facturas creadas: {} meses", creadas);
+            }
+        } finally {
+            verificarUltimaParticion();
+        }
+    }
+
+    private void verificarUltimaParticion() {
+        List<YearMonth> meses = mesesConParticion();
+        YearMonth ultima = meses.isEmpty() ? null : meses.get(meses.size() - 1);
+        if (ultima == null || ultima.isBefore(YearMonth.now().plusMonths(1))) {
+            log.error("La última partición mensual de facturas es de {}: las altas posteriores irán a "
+                    + "facturas_default hasta que se creen las particiones", ultima);
+        }
+    }
+
+    /**
+     * Separa las particiones de los meses anteriores a la retención. Devuelve los meses archivados.
+     */
+    public List<YearMonth> archivarParticiones() {
+        YearMonth corte = retencion.primerMes();
+        List<YearMonth> vencidas = mesesConParticion().stream()
+                .filter(mes -> mes.isBefore(corte))
+                .toList();
+        for (YearMonth mes : vencidas) {
+            String particion = jdbcTemplate.queryForObject("select archivar_particion_facturas(?::date, ?::text)",
+                    String.class, mes.atDay(1), esquemaArchivo);
+            log.info("Partición {} de facturas de {} {}", particion, mes, esquemaArchivo == null
+                    ? "eliminada" : "archivada en el esquema " + esquemaArchivo);
+        }
+        return vencidas;
+    }
+
+    /**
+     * Meses con partición mensual de facturas, en orden; no incluye la partición por defecto.
+     */
+    private List<YearMonth> mesesConParticion() {
+        return jdbcTemplate.queryForList("""
+                        select substring(c.relname from '[0-9]{4}_[0-9]{2}$')
+                        from pg_inherits i
+                        join pg_class c on c.oid = i.inhrelid
+                        where i.inhparent = 'facturas'::regclass
+                          and c.relname ~ '^facturas_[0-9]{4}_[0-9]{2}$'
+                        order by 1""", String.class).stream()
+                .map(sufijo -> YearMonth.parse(sufijo, SUFIJO))
+                .toList();
+    }
+}
@@ -0,0 +1,220 @@
+package com.multipedidos.proveedores.service;
+
+import com.multipedidos.proveedores.dto.EstadisticasCacheDTO;
+import com.multipedidos.proveedores.model.Factura;
+import com.multipedidos.proveedores.model.PedidoFacturado;
+import com.multipedidos.proveedores.model.PedidoReferencia;
+import com.multipedidos.proveedores.repository.PedidoFacturadoRepository;
+import com.multipedidos.proveedores.util.FiltroBloom;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Registro de los pedidos ya facturados: la tabla {@code pedidos_facturados} y, delante de
+ * ella, un filtro en memoria.
+ *
+ * Un filtro de Bloom, reconstruido al iniciar y cada {@code recarga-ms}, descarta sin ir a
+ * la base los pedidos que nunca se facturaron, que es el caso habitual. Solo los pedidos que
+ * el filtro no puede descartar se confirman con una consulta. La clave primaria de la tabla
+ * sigue siendo la garantía ante facturas concurrentes o creadas por otra instancia.
+ */
+@Component
+@Slf4j
+public class PedidosFacturados {
+
+    // PostgreSQL informa la clave primaria (pedidos_facturados_pkey); H2, la tabla en el mensaje
+    private static final String RESTRICCION_UNICA = "pedidos_facturados";
+
+    private final PedidoFacturadoRepository pedidoFacturadoRepository;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final long capacidadMinima;
+    private final double probabilidadFalsosPositivos;
+    private final LongAdder descartados = new LongAdder();
+    private final LongAdder consultados = new LongAdder();
+    private final AtomicLong agregados = new AtomicLong();
+    private volatile FiltroBloom filtro;
+    private volatile FiltroBloom enConstruccion;
+
+    public PedidosFacturados(PedidoFacturadoRepository pedidoFacturadoRepository,
+                             EntityManager entityManager,
+                             TransactionTemplate transactionTemplate,
+                             @Value("${facturacion.pedidos-facturados.capacidad-minima:100000}") long capacidadMinima,
+                             @Value("${facturacion.pedidos-facturados.probabilidad-falsos-positivos:0.01}") double probabilidadFalsosPositivos) {
+        this.pedidoFacturadoRepository = pedidoFacturadoRepository;
+        this.entityManager = entityManager;
+        this.transactionTemplate = transactionTemplate;
+        this.capacidadMinima = capacidadMinima;
+        this.probabilidadFalsosPositivos = probabilidadFalsosPositivos;
+    }
+
+    /**
+     * Construye el filtro al iniciar. Un fallo no impide el arranque: mientras no haya filtro
+     * cada verificación consulta la base.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void precargar() {
+        try {
+            reconstruir();
+        } catch (RuntimeException e) {
+            log.warn("No se pudo construir el filtro de pedidos facturados: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Reconstruye el filtro desde la tabla, dimensionado para el doble de los pedidos actuales.
+     * Los pedidos registrados mientras se recorre la tabla se agregan también al filtro nuevo.
+     */
+    @Scheduled(initialDelayString = "${facturacion.pedidos-facturados.recarga-ms:21600000}",
+            fixedDelayString = "${facturacion.pedidos-facturados.recarga-ms:21600000}")
+    public void reconstruir() {
+        long existentes = pedidoFacturadoRepository.count();
+        FiltroBloom nuevo = new FiltroBloom(Math.max(capacidadMinima, existentes * 2), probabilidadFalsosPositivos);
+        enConstruccion = nuevo;
+        long cargados;
+        try {
+            cargados = transactionTemplate.execute(estado -> {
+                long leidos = 0;
+                try (Stream<Long> pedidoIds = pedidoFacturadoRepository.recorrerPedidoIds()) {
+                    Iterator<Long> iterador = pedidoIds.iterator();
+                    while (iterador.hasNext()) {
+                        nuevo.agregar(iterador.next());
+                        leidos++;
+                    }
+                }
+                return leidos;
+            });
+            filtro = nuevo;
+        } finally {
+            enConstruccion = null;
+        }
+        agregados.set(cargados);
+        log.info("Filtro de pedidos facturados construido: {} pedidos, capacidad {} ({} KB)",
+                cargados, nuevo.getCapacidad(), nuevo.getCantidadBits() / 8 / 1024);
+    }
+
+    /**
+     * Devuelve los pedidos indicados que ya figuran en alguna factura. Si el filtro descarta
+     * todos, no consulta la base.
+     */
+    public Set<Long> buscarFacturados(Collection<Long> pedidoIds) {
+        FiltroBloom actual = filtro;
+        List<Long> candidatos = new ArrayList<>();
+        for (Long pedidoId : pedidoIds) {
+            if (actual == null || actual.puedeContener(pedidoId)) {
+                candidatos.add(pedidoId);
+            }
+        }
+        descartados.add(pedidoIds.size() - candidatos.size());
+        if (candidatos.isEmpty()) {
+            return Set.of();
+        }
+        consultados.add(candidatos.size());
+        return new HashSet<>(pedidoFacturadoRepository.buscarFacturados(candidatos));
+    }
+
+    /**
+     * Registra los pedidos de las facturas recién guardadas en la transacción en curso. Un
+     * pedido ya facturado hace fallar el envío a la base con la violación de la clave primaria
+     * ({@link #esPedidoYaFacturado}). Los pedidos se agregan al filtro al confirmar.
+     */
+    public void reservar(Collection<Factura> facturas) {
+        List<Long> pedidoIds = new ArrayList<>();
+        for (Factura factura : facturas) {
+            for (PedidoReferencia pedido : factura.getPedidos()) {
+                // persist y no save: el ID es el del pedido y save consultaría antes si existe
+                entityManager.persist(PedidoFacturado.builder()
+                        .pedidoId(pedido.getPedidoId())
+                        .facturaId(factura.getId())
+                        .build());
+                pedidoIds.add(pedido.getPedidoId());
+            }
+        }
+        registrarAlConfirmar(pedidoIds);
+    }
+
+    /**
+     * Agrega los pedidos al filtro cuando la transacción en curso se confirma.
+     */
+    private void registrarAlConfirmar(Collection<Long> pedidoIds) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            registrar(pedidoIds);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                registrar(pedidoIds);
+            }
+        });
+    }
+
+    private void registrar(Collection<Long> pedidoIds) {
+        FiltroBloom actual = filtro;
+        FiltroBloom nuevo = enConstruccion;
+        for (Long pedidoId : pedidoIds) {
+            if (actual != null) {
+                actual.agregar(pedidoId);
+            }
+            if (nuevo != null) {
+                nuevo.agregar(pedidoId);
+            }
+        }
+        long total = agregados.addAndGet(pedidoIds.size());
+        if (actual != null && total > actual.getCapacidad() && total - pedidoIds.size() <= actual.getCapacidad()) {
+            log.warn("El filtro de pedidos facturados superó su capacidad ({}); aumentarán las consultas "
+                    + "hasta la próxima reconstrucción", actual.getCapacidad());
+        }
+    }
+
+    /**
+     * Aciertos: pedidos descartados sin consultar la base. Fallos: pedidos confirmados con una consulta.
+     */
+    public EstadisticasCacheDTO obtenerEstadisticas() {
+        long aciertos = descartados.sum();
+        long fallos = consultados.sum();
+        long total = aciertos + fallos;
+        return EstadisticasCacheDTO.builder()
+                .nombre("pedidos-facturados")
+                .entradas(agregados.get())
+                .aciertos(aciertos)
+                .fallos(fallos)
+                .desalojos(0)
+                .tasaAciertos(total == 0 ? 1.0 : (double) aciertos / total)
+                .build();
+    }
+
+    /**
+     * Indica si el error proviene de la clave primaria de pedidos facturados.
+     */
+    public static boolean esPedidoYaFacturado(DataIntegrityViolationException e) {
+        for (Throwable causa = e; causa != null; causa = causa.getCause()) {
+            if (causa instanceof ConstraintViolationException violacion && violacion.getConstraintName() != null
+                    && violacion.getConstraintName().toLowerCase(Locale.ROOT).contains(RESTRICCION_UNICA)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
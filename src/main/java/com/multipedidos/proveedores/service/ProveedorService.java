@@ -1,18 +1,25 @@
 package com.multipedidos.proveedores.service;
 
+import com.multipedidos.proveedores.dto.PaginaDTO;
 import com.multipedidos.proveedores.dto.ProveedorDTO;
 import com.multipedidos.proveedores.dto.ProveedorInputDTO;
 import com.multipedidos.proveedores.model.Proveedor;
 import com.multipedidos.proveedores.repository.ProveedorRepository;
+import com.multipedidos.proveedores.util.CursorPaginacion;
 import com.multipedidos.common.exceptions.DatosInvalidosException;
 import com.multipedidos.common.exceptions.RecursoNoEncontradoException;
 import com.multipedidos.common.utils.ValidadorCodigos;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
@@ -24,10 +31,13 @@ import java.util.stream.Collectors;
 public class ProveedorService {
 
     private final ProveedorRepository proveedorRepository;
+    private final ProveedoresCache proveedoresCache;
+    private final ResumenProveedorService resumenProveedorService;
 
     /**
      * Crea un nuevo proveedor.
      */
+    @Timed("facturacion.servicio")
     @Transactional
     public ProveedorDTO crearProveedor(ProveedorInputDTO input) {
         log.info("Creando nuevo proveedor: {}", input.getNombre());
@@ -49,47 +59,105 @@ public class ProveedorService {
 
         Proveedor guardado = proveedorRepository.save(proveedor);
         log.info("Proveedor creado con ID: {}", guardado.getId());
+        resumenProveedorService.crearResumen(guardado.getId());
 
-        return mapearADTO(guardado);
+        ProveedorDTO dto = mapearADTO(guardado);
+        proveedoresCache.registrarAlConfirmar(dto);
+        return dto;
     }
 
     /**
-     * Obtiene todos los proveedores.
+     * Obtiene una página de proveedores ordenada por ID.
      */
+    @Timed("facturacion.servicio")
     @Transactional(readOnly = true)
-    public List<ProveedorDTO> listarProveedores() {
-        log.info("Listando todos los proveedores");
-        return proveedorRepository.findAll().stream()
+    public PaginaDTO<ProveedorDTO> listarProveedores(String cursor, Integer limite) {
+        int tamano = CursorPaginacion.normalizarLimite(limite);
+        Long desde = cursor == null ? 0L : CursorPaginacion.decodificarId(cursor);
+        log.info("Listando proveedores desde ID {} (límite {})", desde, tamano);
+
+        List<Proveedor> proveedores = proveedorRepository.findByIdGreaterThanOrderByIdAsc(desde,
+                CursorPaginacion.consulta(tamano));
+        String siguiente = proveedores.size() > tamano
+                ? CursorPaginacion.codificar(proveedores.get(tamano - 1).getId())
+                : null;
+        List<ProveedorDTO> items = proveedores.stream()
+                .limit(tamano)
                 .map(this::mapearADTO)
                 .collect(Collectors.toList());
+        return new PaginaDTO<>(items, siguiente);
     }
 
     /**
-     * Obtiene un proveedor por ID.
+     * Obtiene un proveedor por ID, primero desde la caché local.
      */
-    @Transactional(readOnly = true)
+    @Timed("facturacion.servicio")
     public ProveedorDTO obtenerProveedor(Long id) {
         log.info("Buscando proveedor con ID: {}", id);
-        Proveedor proveedor = proveedorRepository.findById(id)
+        ProveedorDTO enCache = proveedoresCache.buscar(id);
+        if (enCache != null) {
+            return enCache;
+        }
+        ProveedorDTO proveedor = proveedorRepository.findById(id)
+                .map(this::mapearADTO)
                 .orElseThrow(() -> new RecursoNoEncontradoException("Proveedor", id));
-        return mapearADTO(proveedor);
+        proveedoresCache.registrar(proveedor);
+        return proveedor;
     }
 
     /**
-     * Verifica si un proveedor existe.
+     * Verifica si un proveedor existe. Los proveedores conocidos se resuelven en memoria;
+     * el resto se consulta en la base, fuera de una transacción de solo lectura para que con
+     * réplicas se lea del primario un proveedor recién creado en otra instancia.
      */
+    @Timed("facturacion.servicio")
     public boolean existeProveedor(Long id) {
-        return proveedorRepository.existsById(id);
+        if (id == null) {
+            return false;
+        }
+        if (proveedoresCache.conocido(id)) {
+            return true;
+        }
+        boolean existe = !proveedorRepository.buscarIdsExistentes(List.of(id)).isEmpty();
+        if (existe) {
+            proveedoresCache.registrarExistente(id);
+        }
+        return existe;
+    }
+
+    /**
+     * Devuelve cuáles de los IDs indicados corresponden a proveedores existentes, consultando
+     * en una sola consulta solo los que no están en la caché.
+     */
+    @Timed("facturacion.servicio")
+    public Set<Long> filtrarExistentes(Collection<Long> ids) {
+        Set<Long> existentes = new HashSet<>();
+        List<Long> desconocidos = new ArrayList<>();
+        for (Long id : ids) {
+            if (proveedoresCache.conocido(id)) {
+                existentes.add(id);
+            } else {
+                desconocidos.add(id);
+            }
+        }
+        if (!desconocidos.isEmpty()) {
+            for (Long id : proveedorRepository.buscarIdsExistentes(desconocidos)) {
+                proveedoresCache.registrarExistente(id);
+                existentes.add(id);
+            }
+        }
+        return existentes;
     }
 
     /**
      * Mapea una entidad Proveedor a DTO.
      */
-    private ProveedorDTO mapearADTO(Proveedor proveedor) {
+    ProveedorDTO mapearADTO(Proveedor proveedor) {
         return ProveedorDTO.builder()
                 .id(proveedor.getId())
                 .nombre(proveedor.getNombre())
                 .correo(proveedor.getCorreo())
+                .version(proveedor.getVersion())
                 .build();
     }
 }
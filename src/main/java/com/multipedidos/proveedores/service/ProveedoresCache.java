@@ -0,0 +1,186 @@
+package com.multipedidos.proveedores.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.multipedidos.proveedores.dto.EstadisticasCacheDTO;
+import com.multipedidos.proveedores.dto.ProveedorDTO;
+import com.multipedidos.proveedores.repository.ProveedorRepository;
+import com.multipedidos.proveedores.util.LongHashSet;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Caché local de proveedores.
+ *
+ * Mantiene el conjunto completo de IDs existentes, precargado al iniciar y recargado cada
+ * {@code recarga-ms}, para que validar el proveedor de una factura no requiera ir a la base.
+ * Los datos de cada proveedor se guardan aparte en una caché acotada con TTL.
+ * Solo se registran proveedores ya confirmados en la base; un ID ausente del conjunto se
+ * verifica en la base antes de darlo por inexistente.
+ */
+@Component
+@Slf4j
+public class ProveedoresCache {
+
+    private final ProveedorRepository proveedorRepository;
+    private final Cache<Long, ProveedorDTO> proveedores;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final LongAdder aciertosExistencia = new LongAdder();
+    private final LongAdder fallosExistencia = new LongAdder();
+    private LongHashSet existentes = new LongHashSet();
+
+    public ProveedoresCache(ProveedorRepository proveedorRepository,
+                            @Value("${proveedores.cache.tamano-maximo:10000}") long tamanoMaximo,
+                            @Value("${proveedores.cache.ttl-segundos:600}") long ttlSegundos) {
+        this.proveedorRepository = proveedorRepository;
+        this.proveedores = Caffeine.newBuilder()
+                .maximumSize(tamanoMaximo)
+                .expireAfterWrite(Duration.ofSeconds(ttlSegundos))
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Carga todos los IDs de proveedores. Un fallo no impide el arranque: la caché se
+     * completa a medida que se consultan proveedores.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void precargar() {
+        try {
+            recargar();
+        } catch (RuntimeException e) {
+            log.warn("No se pudo precargar la caché de proveedores: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Reemplaza el conjunto de IDs por el contenido actual de la tabla, descartando los
+     * proveedores eliminados fuera de este servicio.
+     */
+    @Scheduled(initialDelayString = "${proveedores.cache.recarga-ms:600000}",
+            fixedDelayString = "${proveedores.cache.recarga-ms:600000}")
+    public void recargar() {
+        List<Long> ids = proveedorRepository.buscarTodosLosIds();
+        LongHashSet nuevos = new LongHashSet(ids.size());
+        ids.forEach(nuevos::add);
+        Lock escritura = lock.writeLock();
+        escritura.lock();
+        try {
+            existentes = nuevos;
+        } finally {
+            escritura.unlock();
+        }
+        log.info("Caché de proveedores cargada con {} IDs", nuevos.size());
+    }
+
+    /**
+     * Indica si el ID está en el conjunto de proveedores conocidos. Un {@code false} no
+     * significa que no exista: puede haberse creado en otra instancia.
+     */
+    public boolean conocido(long proveedorId) {
+        Lock lectura = lock.readLock();
+        lectura.lock();
+        boolean conocido;
+        try {
+            conocido = existentes.contains(proveedorId);
+        } finally {
+            lectura.unlock();
+        }
+        (conocido ? aciertosExistencia : fallosExistencia).increment();
+        return conocido;
+    }
+
+    public ProveedorDTO buscar(Long proveedorId) {
+        return proveedores.getIfPresent(proveedorId);
+    }
+
+    /**
+     * Registra un proveedor leído de la base.
+     */
+    public void registrar(ProveedorDTO proveedor) {
+        registrarExistente(proveedor.getId());
+        proveedores.put(proveedor.getId(), proveedor);
+    }
+
+    /**
+     * Registra un proveedor recién creado cuando la transacción en curso se confirma,
+     * para no dar por existente un proveedor que termine revertido.
+     */
+    public void registrarAlConfirmar(ProveedorDTO proveedor) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            registrar(proveedor);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                registrar(proveedor);
+            }
+        });
+    }
+
+    public void registrarExistente(long proveedorId) {
+        Lock escritura = lock.writeLock();
+        escritura.lock();
+        try {
+            existentes.add(proveedorId);
+        } finally {
+            escritura.unlock();
+        }
+    }
+
+    /**
+     * Vacía los datos en caché y recarga el conjunto de IDs.
+     */
+    public void invalidarTodo() {
+        log.info("Invalidando la caché de proveedores");
+        proveedores.invalidateAll();
+        recargar();
+    }
+
+    public List<EstadisticasCacheDTO> obtenerEstadisticas() {
+        long aciertos = aciertosExistencia.sum();
+        long fallos = fallosExistencia.sum();
+        long total = aciertos + fallos;
+        Lock lectura = lock.readLock();
+        lectura.lock();
+        long entradas;
+        try {
+            entradas = existentes.size();
+        } finally {
+            lectura.unlock();
+        }
+        CacheStats stats = proveedores.stats();
+        return List.of(
+                EstadisticasCacheDTO.builder()
+                        .nombre("proveedores-existencia")
+                        .entradas(entradas)
+                        .aciertos(aciertos)
+                        .fallos(fallos)
+                        .desalojos(0)
+                        .tasaAciertos(total == 0 ? 1.0 : (double) aciertos / total)
+                        .build(),
+                EstadisticasCacheDTO.builder()
+                        .nombre("proveedores")
+                        .entradas(proveedores.estimatedSize())
+                        .aciertos(stats.hitCount())
+                        .fallos(stats.missCount())
+                        .desalojos(stats.evictionCount())
+                        .tasaAciertos(stats.hitRate())
+                        .build());
+    }
+}
@@ -0,0 +1,249 @@
+package com.multipedidos.proveedores.service;
+
+import com.multipedidos.proveedores.dto.PaginaDTO;
+import com.multipedidos.proveedores.dto.ResumenProveedorDTO;
+import com.multipedidos.proveedores.model.Factura;
+import com.multipedidos.proveedores.model.Factura.EstadoFactura;
+import com.multipedidos.proveedores.model.ResumenProveedor;
+import com.multipedidos.proveedores.repository.ProveedorRepository;
+import com.multipedidos.proveedores.repository.ResumenProveedorRepository;
+import com.multipedidos.proveedores.util.CursorPaginacion;
+import com.multipedidos.common.exceptions.RecursoNoEncontradoException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Servicio de los acumulados de facturación por proveedor.
+ *
+ * Cada alta o cambio de estado de una factura se traduce en variaciones que se suman al
+ * resumen del proveedor dentro de la misma transacción, por lo que consultar un resumen
+ * cuesta una lectura por clave sin importar cuántas facturas tenga el proveedor.
+ * Las facturas canceladas cuentan en la cantidad pero no en los montos.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ResumenProveedorService {
+
+    private final ResumenProveedorRepository resumenProveedorRepository;
+    private final ProveedorRepository proveedorRepository;
+
+    /**
+     * Crea el resumen vacío de un proveedor recién registrado.
+     */
+    @Transactional
+    public void crearResumen(Long proveedorId) {
+        resumenProveedorRepository.save(ResumenProveedor.builder()
+                .proveedorId(proveedorId)
+                .totalFacturado(BigDecimal.ZERO)
+                .montoPendiente(BigDecimal.ZERO)
+                .montoPagado(BigDecimal.ZERO)
+                .fechaActualizacion(LocalDateTime.now())
+                .build());
+    }
+
+    /**
+     * Suma una factura nueva al resumen de su proveedor.
+     */
+    @Transactional
+    public void registrarFactura(Factura factura) {
+        acumular(factura.getProveedorId(), Variacion.alta(factura.getEstado(), factura.getTotalFactura()));
+    }
+
+    /**
+     * Suma un conjunto de facturas nuevas con una actualización por proveedor. Los proveedores
+     * se actualizan en orden de ID para que transacciones concurrentes bloqueen las filas en
+     * el mismo orden.
+     */
+    @Transactional
+    public void registrarFacturas(Collection<Factura> facturas) {
+        Map<Long, Variacion> porProveedor = facturas.stream()
+                .collect(Collectors.toMap(Factura::getProveedorId,
+                        factura -> Variacion.alta(factura.getEstado(), factura.getTotalFactura()),
+                        Variacion::sumar,
+                        TreeMap::new));
+        porProveedor.forEach(this::acumular);
+    }
+
+    /**
+     * Traslada el total de una factura del estado anterior al nuevo.
+     */
+    @Transactional
+    public void registrarCambioEstado(Long proveedorId, BigDecimal total, EstadoFactura anterior, EstadoFactura nuevo) {
+        if (anterior == nuevo) {
+            return;
+        }
+        acumular(proveedorId, Variacion.de(nuevo, total).restar(Variacion.de(anterior, total)));
+    }
+
+    /**
+     * Traslada del estado anterior al nuevo la suma de los totales de cada proveedor. Los
+     * resúmenes se bloquean juntos en orden de ID y se escriben como un lote de UPDATE al
+     * confirmar, en lugar de una sentencia por proveedor.
+     */
+    @Transactional
+    public void registrarCambiosEstado(Map<Long, BigDecimal> totalPorProveedor, EstadoFactura anterior,
+                                       EstadoFactura nuevo) {
+        if (anterior == nuevo || totalPorProveedor.isEmpty()) {
+            return;
+        }
+        Map<Long, BigDecimal> pendientes = new TreeMap<>(totalPorProveedor);
+        LocalDateTime ahora = LocalDateTime.now();
+        for (ResumenProveedor resumen : resumenProveedorRepository.bloquearPorIds(pendientes.keySet())) {
+            BigDecimal total = pendientes.remove(resumen.getProveedorId());
+            Variacion variacion = Variacion.de(nuevo, total).restar(Variacion.de(anterior, total));
+            resumen.setTotalFacturado(resumen.getTotalFacturado().add(variacion.facturado()));
+            resumen.setMontoPendiente(resumen.getMontoPendiente().add(variacion.pendiente()));
+            resumen.setMontoPagado(resumen.getMontoPagado().add(variacion.pagado()));
+            resumen.setFechaActualizacion(ahora);
+        }
+        pendientes.forEach((proveedorId, total) ->
+                acumular(proveedorId, Variacion.de(nuevo, total).restar(Variacion.de(anterior, total))));
+    }
+
+    /**
+     * Obtiene el resumen de un proveedor.
+     */
+    @Transactional(readOnly = true)
+    public ResumenProveedorDTO obtenerResumen(Long proveedorId) {
+        return resumenProveedorRepository.findById(proveedorId)
+                .map(this::mapearADTO)
+                .orElseGet(() -> {
+                    if (!proveedorRepository.existsById(proveedorId)) {
+                        throw new RecursoNoEncontradoException("Proveedor", proveedorId);
+                    }
+                    return ResumenProveedorDTO.builder()
+                            .proveedorId(proveedorId)
+                            .totalFacturado(BigDecimal.ZERO)
+                            .montoPendiente(BigDecimal.ZERO)
+                            .montoPagado(BigDecimal.ZERO)
+                            .build();
+                });
+    }
+
+    /**
+     * Marca que cambia con cada alta o cambio de estado de una factura del proveedor; vacía si
+     * el proveedor no tiene resumen.
+     */
+    @Transactional(readOnly = true)
+    public Optional<String> obtenerMarcaFacturas(Long proveedorId) {
+        return resumenProveedorRepository.findById(proveedorId)
+                .map(resumen -> resumen.getCantidadFacturas() + ":" + resumen.getTotalFacturado() + ":"
+                        + resumen.getMontoPendiente() + ":" + resumen.getMontoPagado() + ":"
+                        + resumen.getFechaActualizacion());
+    }
+
+    /**
+     * Obtiene una página de resúmenes ordenada por ID de proveedor.
+     */
+    @Transactional(readOnly = true)
+    public PaginaDTO<ResumenProveedorDTO> listarResumenes(String cursor, Integer limite) {
+        int tamano = CursorPaginacion.normalizarLimite(limite);
+        Long desde = cursor == null ? 0L : CursorPaginacion.decodificarId(cursor);
+        List<ResumenProveedor> resumenes = resumenProveedorRepository
+                .findByProveedorIdGreaterThanOrderByProveedorIdAsc(desde, CursorPaginacion.consulta(tamano));
+        String siguiente = resumenes.size() > tamano
+                ? CursorPaginacion.codificar(resumenes.get(tamano - 1).getProveedorId())
+                : null;
+        List<ResumenProveedorDTO> items = resumenes.stream()
+                .limit(tamano)
+                .map(this::mapearADTO)
+                .collect(Collectors.toList());
+        return new PaginaDTO<>(items, siguiente);
+    }
+
+    /**
+     * Calcula al iniciar el resumen de los proveedores que no tienen uno, por ejemplo los
+     * registrados antes de que existiera la tabla.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void completarResumenesFaltantes() {
+        int creados = resumenProveedorRepository.completarFaltantes(LocalDateTime.now());
+        if (creados > 0) {
+            log.info("Resúmenes de facturación calculados para {} proveedores", creados);
+        }
+    }
+
+    /**
+     * El resumen se crea junto con el proveedor y al iniciar para los que no lo tienen. Si aun
+     * así falta, se crea vacío en una transacción aparte, tolerando que otra lo cree a la vez, y
+     * la variación se suma con el mismo UPDATE, de modo que ninguna transacción pisa a otra.
+     */
+    private void acumular(Long proveedorId, Variacion variacion) {
+        if (sumar(proveedorId, variacion) > 0) {
+            return;
+        }
+        log.warn("El proveedor {} no tenía resumen de facturación, se crea", proveedorId);
+        try {
+            resumenProveedorRepository.crearVacioSiFalta(proveedorId, LocalDateTime.now());
+        } catch (DataIntegrityViolationException e) {
+            log.debug("El resumen del proveedor {} se creó en paralelo", proveedorId);
+        }
+        if (sumar(proveedorId, variacion) == 0) {
+            throw new IllegalStateException("No se pudo crear el resumen de facturación del proveedor " + proveedorId);
+        }
+    }
+
+    private int sumar(Long proveedorId, Variacion variacion) {
+        return resumenProveedorRepository.acumular(proveedorId, variacion.cantidad(),
+                variacion.facturado(), variacion.pendiente(), variacion.pagado(), LocalDateTime.now());
+    }
+
+    private ResumenProveedorDTO mapearADTO(ResumenProveedor resumen) {
+        return ResumenProveedorDTO.builder()
+                .proveedorId(resumen.getProveedorId())
+                .cantidadFacturas(resumen.getCantidadFacturas())
+                .totalFacturado(resumen.getTotalFacturado())
+                .montoPendiente(resumen.getMontoPendiente())
+                .montoPagado(resumen.getMontoPagado())
+                .fechaActualizacion(resumen.getFechaActualizacion())
+                .build();
+    }
+
+    /**
+     * Variación a sumar a un resumen.
+     */
+    private record Variacion(long cantidad, BigDecimal facturado, BigDecimal pendiente, BigDecimal pagado) {
+
+        static Variacion alta(EstadoFactura estado, BigDecimal total) {
+            Variacion montos = de(estado, total);
+            return new Variacion(1, montos.facturado(), montos.pendiente(), montos.pagado());
+        }
+
+        /**
+         * Aporte a los montos de una factura en el estado indicado, sin contarla.
+         */
+        static Variacion de(EstadoFactura estado, BigDecimal total) {
+            return switch (estado) {
+                case PENDIENTE -> new Variacion(0, total, total, BigDecimal.ZERO);
+                case PAGADA -> new Variacion(0, total, BigDecimal.ZERO, total);
+                case CANCELADA -> new Variacion(0, BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO);
+            };
+        }
+
+        Variacion sumar(Variacion otra) {
+            return new Variacion(cantidad + otra.cantidad, facturado.add(otra.facturado),
+                    pendiente.add(otra.pendiente), pagado.add(otra.pagado));
+        }
+
+        Variacion restar(Variacion otra) {
+            return new Variacion(cantidad - otra.cantidad, facturado.subtract(otra.facturado),
+                    pendiente.subtract(otra.pendiente), pagado.subtract(otra.pagado));
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.multipedidos.proveedores.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+
+/**
+ * Ventana de retención de facturas: el mes actual y los {@code retencion-meses} anteriores.
+ *
+ * {@link ParticionesFacturas} archiva las particiones de los meses previos, así que las consultas
+ * acotan {@code fecha_factura} desde {@link #inicio()} y PostgreSQL descarta el resto de las
+ * particiones sin revisar sus índices. Una factura vencida cuya partición todavía no se archivó
+ * tampoco se devuelve.
+ */
+@Component
+public class RetencionFacturas {
+
+    private final int retencionMeses;
+
+    public RetencionFacturas(@Value("${facturacion.particiones.retencion-meses:24}") int retencionMeses) {
+        if (retencionMeses < 1) {
+            throw new IllegalArgumentException("facturacion.particiones.retencion-meses debe ser al menos 1");
+        }
+        this.retencionMeses = retencionMeses;
+    }
+
+    /**
+     * Mes más antiguo que se conserva.
+     */
+    public YearMonth primerMes() {
+        return YearMonth.now().minusMonths(retencionMeses);
+    }
+
+    /**
+     * Primer instante de la ventana de retención.
+     */
+    public LocalDateTime inicio() {
+        return primerMes().atDay(1).atStartOfDay();
+    }
+}
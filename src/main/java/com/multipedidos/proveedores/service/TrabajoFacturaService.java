@@ -0,0 +1,198 @@
+package com.multipedidos.proveedores.service;
+
+import com.multipedidos.proveedores.dto.FacturaInputDTO;
+import com.multipedidos.proveedores.dto.TrabajoFacturaDTO;
+import com.multipedidos.proveedores.model.TrabajoFactura;
+import com.multipedidos.proveedores.model.TrabajoFactura.EstadoTrabajo;
+import com.multipedidos.proveedores.repository.TrabajoFacturaRepository;
+import com.multipedidos.common.exceptions.DatosInvalidosException;
+import com.multipedidos.common.exceptions.RecursoNoEncontradoException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Servicio de la cola persistente de facturas asíncronas.
+ * La solicitud se guarda tal cual y un worker la procesa después con la misma lógica
+ * que la creación síncrona.
+ */
+@Service
+@Slf4j
+public class TrabajoFacturaService {
+
+    private static final int LARGO_MAXIMO_ERROR = 1000;
+
+    private final TrabajoFacturaRepository trabajoFacturaRepository;
+    private final FacturaService facturaService;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final int maxIntentos;
+
+    public TrabajoFacturaService(TrabajoFacturaRepository trabajoFacturaRepository,
+                                 FacturaService facturaService,
+                                 ObjectMapper objectMapper,
+                                 TransactionTemplate transactionTemplate,
+                                 @Value("${facturacion.trabajos.max-intentos:3}") int maxIntentos) {
+        this.trabajoFacturaRepository = trabajoFacturaRepository;
+        this.facturaService = facturaService;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = transactionTemplate;
+        this.maxIntentos = maxIntentos;
+    }
+
+    /**
+     * Encola una factura para crearla en segundo plano.
+     */
+    @Transactional
+    public TrabajoFacturaDTO encolar(FacturaInputDTO input) {
+        String entrada;
+        try {
+            entrada = objectMapper.writeValueAsString(input);
+        } catch (JsonProcessingException e) {
+            throw new DatosInvalidosException("No se pudo registrar la factura: " + e.getOriginalMessage());
+        }
+        TrabajoFactura trabajo = trabajoFacturaRepository.save(TrabajoFactura.builder()
+                .entrada(entrada)
+                .build());
+        log.info("Factura para proveedor ID {} encolada como trabajo {}", input.getProveedorId(), trabajo.getId());
+        return mapearADTO(trabajo);
+    }
+
+    /**
+     * Obtiene el estado de un trabajo.
+     */
+    @Transactional(readOnly = true)
+    public TrabajoFacturaDTO obtenerTrabajo(Long id) {
+        return trabajoFacturaRepository.findById(id)
+                .map(this::mapearADTO)
+                .orElseThrow(() -> new RecursoNoEncontradoException("Trabajo", id));
+    }
+
+    /**
+     * Toma hasta la cantidad indicada de trabajos pendientes y los marca en proceso.
+     * Los que tenga bloqueados otra instancia se saltan.
+     */
+    @Transactional
+    public List<Long> reclamarPendientes(int cantidad) {
+        List<TrabajoFactura> trabajos = trabajoFacturaRepository.bloquearPorEstado(EstadoTrabajo.PENDIENTE,
+                PageRequest.ofSize(cantidad));
+        trabajos.forEach(trabajo -> {
+            trabajo.setEstado(EstadoTrabajo.EN_PROCESO);
+            trabajo.setIntentos(trabajo.getIntentos() + 1);
+        });
+        return trabajos.stream()
+                .map(TrabajoFactura::getId)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Procesa un trabajo reclamado. El cierre del trabajo se confirma en la misma transacción
+     * que la factura, de modo que un trabajo reintentado nunca la duplica; la validación
+     * remota de los pedidos ocurre antes, sin retener una conexión de la base. Si el trabajo ya
+     * no está en proceso (volvió a la cola por lento o lo cerró otro worker), la factura se
+     * descarta y el estado del trabajo no cambia.
+     */
+    public void procesar(Long trabajoId) {
+        try {
+            TrabajoFactura trabajo = trabajoFacturaRepository.findById(trabajoId)
+                    .orElseThrow(() -> new RecursoNoEncontradoException("Trabajo", trabajoId));
+            facturaService.crearFactura(leerEntrada(trabajo), factura -> {
+                if (trabajoFacturaRepository.completar(trabajoId, EstadoTrabajo.EN_PROCESO, EstadoTrabajo.COMPLETADO,
+                        factura.getId(), LocalDateTime.now()) == 0) {
+                    throw new IllegalStateException("El trabajo " + trabajoId + " ya no está en proceso");
+                }
+            });
+            log.info("Trabajo {} completado", trabajoId);
+        } catch (DatosInvalidosException e) {
+            registrarFallo(trabajoId, e.getMessage(), true);
+        } catch (RuntimeException e) {
+            registrarFallo(trabajoId, e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName(), false);
+        }
+    }
+
+    /**
+     * Devuelve a la cola los trabajos que siguen en proceso después del plazo indicado.
+     */
+    @Transactional
+    public int liberarAtascados(Duration plazo) {
+        LocalDateTime ahora = LocalDateTime.now();
+        int liberados = trabajoFacturaRepository.liberarAtascados(EstadoTrabajo.PENDIENTE, EstadoTrabajo.EN_PROCESO,
+                ahora.minus(plazo), ahora);
+        if (liberados > 0) {
+            log.warn("{} trabajos de facturas llevaban más de {} en proceso y volvieron a la cola", liberados, plazo);
+        }
+        return liberados;
+    }
+
+    /**
+     * Borra los trabajos completados o fallidos sin cambios desde antes de la retención, en
+     * lotes de la cantidad indicada para no mantener bloqueos largos sobre la tabla.
+     */
+    public int purgarTerminados(Duration retencion, int tamanoLote) {
+        LocalDateTime limite = LocalDateTime.now().minus(retencion);
+        List<EstadoTrabajo> terminados = List.of(EstadoTrabajo.COMPLETADO, EstadoTrabajo.FALLIDO);
+        int purgados = 0;
+        int borrados;
+        do {
+            borrados = transactionTemplate.execute(estado -> {
+                List<Long> ids = trabajoFacturaRepository.buscarTerminados(terminados, limite,
+                        PageRequest.ofSize(tamanoLote));
+                return ids.isEmpty() ? 0 : trabajoFacturaRepository.borrarPorIds(ids);
+            });
+            purgados += borrados;
+        } while (borrados == tamanoLote);
+        if (purgados > 0) {
+            log.info("{} trabajos de facturas terminados antes de {} purgados", purgados, limite);
+        }
+        return purgados;
+    }
+
+    /**
+     * Los datos inválidos fallan en el acto; otros errores se reintentan hasta agotar los intentos.
+     * Solo se registra si el trabajo sigue en proceso: si entretanto volvió a la cola o lo cerró
+     * otro worker, el fallo no pisa ese estado.
+     */
+    private void registrarFallo(Long trabajoId, String mensaje, boolean definitivo) {
+        int registrados = transactionTemplate.execute(estado -> trabajoFacturaRepository.registrarFallo(trabajoId,
+                EstadoTrabajo.EN_PROCESO, EstadoTrabajo.PENDIENTE, EstadoTrabajo.FALLIDO,
+                definitivo ? 0 : maxIntentos,
+                mensaje.length() > LARGO_MAXIMO_ERROR ? mensaje.substring(0, LARGO_MAXIMO_ERROR) : mensaje,
+                LocalDateTime.now()));
+        if (registrados == 0) {
+            log.info("Trabajo {} ya no estaba en proceso, se descarta su resultado: {}", trabajoId, mensaje);
+        } else {
+            log.warn("Trabajo {} {}: {}", trabajoId,
+                    definitivo ? "fallido" : "falló, se reintentará si le quedan intentos", mensaje);
+        }
+    }
+
+    private FacturaInputDTO leerEntrada(TrabajoFactura trabajo) {
+        try {
+            return objectMapper.readValue(trabajo.getEntrada(), FacturaInputDTO.class);
+        } catch (JsonProcessingException e) {
+            throw new DatosInvalidosException("La solicitud almacenada no es válida: " + e.getOriginalMessage());
+        }
+    }
+
+    private TrabajoFacturaDTO mapearADTO(TrabajoFactura trabajo) {
+        return TrabajoFacturaDTO.builder()
+                .id(trabajo.getId())
+                .estado(trabajo.getEstado().name())
+                .intentos(trabajo.getIntentos())
+                .facturaId(trabajo.getFacturaId())
+                .error(trabajo.getError())
+                .fechaCreacion(trabajo.getFechaCreacion())
+                .fechaActualizacion(trabajo.getFechaActualizacion())
+                .build();
+    }
+}
@@ -0,0 +1,78 @@
+package com.multipedidos.proveedores.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Drena la cola de facturas asíncronas: reclama lotes de trabajos pendientes y los reparte
+ * entre los hilos del pool de workers. Mientras los lotes lleguen completos sigue drenando
+ * sin esperar al siguiente ciclo, para absorber ráfagas, pero como mucho {@code lotes-por-ciclo}
+ * lotes: el hilo es el del planificador y las demás tareas programadas no deben esperar a que
+ * la cola se vacíe.
+ */
+@Component
+@ConditionalOnProperty(name = "facturacion.trabajos.habilitado", havingValue = "true", matchIfMissing = true)
+@Slf4j
+public class TrabajoFacturaWorker {
+
+    private final TrabajoFacturaService trabajoFacturaService;
+    private final ExecutorService executor;
+    private final int tamanoLote;
+    private final int lotesPorCiclo;
+    private final Duration plazoProceso;
+    private final Duration retencion;
+    private final int tamanoLotePurga;
+
+    public TrabajoFacturaWorker(TrabajoFacturaService trabajoFacturaService,
+                                @Qualifier("trabajosFacturasExecutor") ExecutorService executor,
+                                @Value("${facturacion.trabajos.tamano-lote:20}") int tamanoLote,
+                                @Value("${facturacion.trabajos.lotes-por-ciclo:10}") int lotesPorCiclo,
+                                @Value("${facturacion.trabajos.plazo-proceso-ms:300000}") long plazoProcesoMs,
+                                @Value("${facturacion.trabajos.retencion-horas:168}") long retencionHoras,
+                                @Value("${facturacion.trabajos.tamano-lote-purga:1000}") int tamanoLotePurga) {
+        this.trabajoFacturaService = trabajoFacturaService;
+        this.executor = executor;
+        this.tamanoLote = tamanoLote;
+        this.lotesPorCiclo = lotesPorCiclo;
+        this.plazoProceso = Duration.ofMillis(plazoProcesoMs);
+        this.retencion = Duration.ofHours(retencionHoras);
+        this.tamanoLotePurga = tamanoLotePurga;
+    }
+
+    @Scheduled(fixedDelayString = "${facturacion.trabajos.intervalo-ms:500}")
+    public void drenarCola() {
+        for (int lote = 0; lote < lotesPorCiclo; lote++) {
+            List<Long> trabajos = trabajoFacturaService.reclamarPendientes(tamanoLote);
+            if (trabajos.isEmpty()) {
+                return;
+            }
+            log.debug("Procesando {} trabajos de facturas", trabajos.size());
+            CompletableFuture.allOf(trabajos.stream()
+                            .map(id -> CompletableFuture.runAsync(() -> trabajoFacturaService.procesar(id), executor))
+                            .toArray(CompletableFuture[]::new))
+                    .join();
+            if (trabajos.size() < tamanoLote) {
+                return;
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${facturacion.trabajos.recuperacion-ms:60000}")
+    public void recuperarAtascados() {
+        trabajoFacturaService.liberarAtascados(plazoProceso);
+    }
+
+    @Scheduled(fixedDelayString = "${facturacion.trabajos.purga-ms:3600000}")
+    public void purgarTerminados() {
+        trabajoFacturaService.purgarTerminados(retencion, tamanoLotePurga);
+    }
+}
@@ -0,0 +1,87 @@
+package com.multipedidos.proveedores.util;
+
+import com.multipedidos.common.exceptions.DatosInvalidosException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Utilidades para la paginación por cursor (keyset) de los listados.
+ *
+ * El cursor es opaco para el cliente: codifica en Base64 URL-safe la clave de ordenamiento
+ * del último elemento entregado ({@code fecha|id} para facturas, {@code id} para proveedores).
+ */
+public final class CursorPaginacion {
+
+    public static final int LIMITE_POR_DEFECTO = 50;
+    public static final int LIMITE_MAXIMO = 500;
+
+    private static final String SEPARADOR = "|";
+
+    private CursorPaginacion() {
+    }
+
+    /**
+     * Normaliza el límite solicitado al rango permitido.
+     */
+    public static int normalizarLimite(Integer limite) {
+        if (limite == null) {
+            return LIMITE_POR_DEFECTO;
+        }
+        if (limite < 1 || limite > LIMITE_MAXIMO) {
+            throw new DatosInvalidosException("El límite debe estar entre 1 y " + LIMITE_MAXIMO);
+        }
+        return limite;
+    }
+
+    /**
+     * Página de consulta que pide un elemento extra para saber si existe una página siguiente.
+     */
+    public static Pageable consulta(int limite) {
+        return PageRequest.ofSize(limite + 1);
+    }
+
+    public static String codificar(Long id) {
+        return codificarTexto(String.valueOf(id));
+    }
+
+    public static String codificar(LocalDateTime fecha, Long id) {
+        return codificarTexto(fecha + SEPARADOR + id);
+    }
+
+    public static Long decodificarId(String cursor) {
+        try {
+            return Long.valueOf(decodificarTexto(cursor));
+        } catch (RuntimeException e) {
+            throw new DatosInvalidosException("El cursor de paginación es inválido");
+        }
+    }
+
+    public static ClaveFecha decodificarFechaId(String cursor) {
+        try {
+            String texto = decodificarTexto(cursor);
+            int separador = texto.lastIndexOf(SEPARADOR);
+            return new ClaveFecha(LocalDateTime.parse(texto.substring(0, separador)),
+                    Long.valueOf(texto.substring(separador + 1)));
+        } catch (RuntimeException e) {
+            throw new DatosInvalidosException("El cursor de paginación es inválido");
+        }
+    }
+
+    private static String codificarTexto(String texto) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(texto.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decodificarTexto(String cursor) {
+        return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Clave de ordenamiento {@code (fecha, id)} decodificada de un cursor.
+     */
+    public record ClaveFecha(LocalDateTime fecha, Long id) {
+    }
+}
@@ -0,0 +1,80 @@
+package com.multipedidos.proveedores.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Filtro de Bloom para valores {@code long}.
+ *
+ * Responde "seguro que no está" o "puede estar": nunca da falsos negativos y los falsos
+ * positivos se mantienen cerca de la probabilidad pedida mientras no se supere la capacidad.
+ * Los bits se fijan con operaciones atómicas, por lo que admite agregar y consultar desde
+ * varios hilos sin bloqueos.
+ */
+public final class FiltroBloom {
+
+    private static final int MAX_FUNCIONES = 16;
+
+    private final AtomicLongArray palabras;
+    private final long cantidadBits;
+    private final int funciones;
+    private final long capacidad;
+
+    public FiltroBloom(long capacidad, double probabilidadFalsosPositivos) {
+        if (capacidad < 1 || probabilidadFalsosPositivos <= 0 || probabilidadFalsosPositivos >= 1) {
+            throw new IllegalArgumentException("Capacidad o probabilidad de falsos positivos inválida");
+        }
+        double ln2 = Math.log(2);
+        long bitsNecesarios = (long) Math.ceil(-capacidad * Math.log(probabilidadFalsosPositivos) / (ln2 * ln2));
+        int cantidadPalabras = (int) Math.max(1, (bitsNecesarios + 63) >>> 6);
+        this.palabras = new AtomicLongArray(cantidadPalabras);
+        this.cantidadBits = (long) cantidadPalabras << 6;
+        this.funciones = (int) Math.min(MAX_FUNCIONES, Math.max(1, Math.round((double) cantidadBits / capacidad * ln2)));
+        this.capacidad = capacidad;
+    }
+
+    public void agregar(long valor) {
+        long h1 = mezclar(valor);
+        long h2 = mezclar(h1);
+        for (int i = 0; i < funciones; i++) {
+            long bit = Math.floorMod(h1 + i * h2, cantidadBits);
+            int palabra = (int) (bit >>> 6);
+            long mascara = 1L << bit;
+            if ((palabras.get(palabra) & mascara) == 0) {
+                palabras.getAndAccumulate(palabra, mascara, (actual, nuevo) -> actual | nuevo);
+            }
+        }
+    }
+
+    /**
+     * {@code false} si el valor seguro no fue agregado; {@code true} si pudo haberlo sido.
+     */
+    public boolean puedeContener(long valor) {
+        long h1 = mezclar(valor);
+        long h2 = mezclar(h1);
+        for (int i = 0; i < funciones; i++) {
+            long bit = Math.floorMod(h1 + i * h2, cantidadBits);
+            if ((palabras.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public long getCapacidad() {
+        return capacidad;
+    }
+
+    public long getCantidadBits() {
+        return cantidadBits;
+    }
+
+    /**
+     * Mezclador final de MurmurHash3: distribuye IDs consecutivos sobre todo el rango.
+     */
+    private static long mezclar(long valor) {
+        long h = valor + 0x9E3779B97F4A7C15L;
+        h = (h ^ (h >>> 33)) * 0xFF51AFD7ED558CCDL;
+        h = (h ^ (h >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return h ^ (h >>> 33);
+    }
+}
@@ -0,0 +1,106 @@
+package com.multipedidos.proveedores.util;
+
+import java.util.Arrays;
+
+/**
+ * Conjunto de {@code long} con direccionamiento abierto y sondeo lineal.
+ *
+ * Evita el boxing de {@code HashSet<Long>}: cada elemento ocupa una celda de un arreglo
+ * primitivo en lugar de un nodo y un {@code Long} en el heap. No es seguro para hilos;
+ * quien lo comparta debe sincronizar el acceso.
+ */
+public final class LongHashSet {
+
+    private static final long VACIO = 0L;
+    private static final int CAPACIDAD_MINIMA = 16;
+
+    private long[] celdas;
+    private int mascara;
+    private int tamano;
+    private boolean contieneCero;
+
+    public LongHashSet() {
+        this(CAPACIDAD_MINIMA);
+    }
+
+    /**
+     * Crea un conjunto dimensionado para la cantidad de elementos esperada sin redimensionar.
+     */
+    public LongHashSet(int esperados) {
+        int capacidad = Integer.highestOneBit(Math.max(CAPACIDAD_MINIMA, esperados * 2 - 1) << 1);
+        celdas = new long[capacidad];
+        mascara = capacidad - 1;
+    }
+
+    public boolean contains(long valor) {
+        if (valor == VACIO) {
+            return contieneCero;
+        }
+        for (int i = indice(valor); ; i = (i + 1) & mascara) {
+            long celda = celdas[i];
+            if (celda == VACIO) {
+                return false;
+            }
+            if (celda == valor) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Agrega el valor; devuelve {@code false} si ya estaba.
+     */
+    public boolean add(long valor) {
+        if (valor == VACIO) {
+            if (contieneCero) {
+                return false;
+            }
+            contieneCero = true;
+            tamano++;
+            return true;
+        }
+        int i = indice(valor);
+        while (celdas[i] != VACIO) {
+            if (celdas[i] == valor) {
+                return false;
+            }
+            i = (i + 1) & mascara;
+        }
+        celdas[i] = valor;
+        // Factor de carga máximo 0.5: mantiene cortas las secuencias de sondeo
+        if (++tamano * 2 > celdas.length) {
+            redimensionar();
+        }
+        return true;
+    }
+
+    public int size() {
+        return tamano;
+    }
+
+    public void clear() {
+        Arrays.fill(celdas, VACIO);
+        tamano = 0;
+        contieneCero = false;
+    }
+
+    private void redimensionar() {
+        long[] anteriores = celdas;
+        celdas = new long[anteriores.length * 2];
+        mascara = celdas.length - 1;
+        for (long valor : anteriores) {
+            if (valor != VACIO) {
+                int i = indice(valor);
+                while (celdas[i] != VACIO) {
+                    i = (i + 1) & mascara;
+                }
+                celdas[i] = valor;
+            }
+        }
+    }
+
+    private int indice(long valor) {
+        long mezcla = valor * 0x9E3779B97F4A7C15L;
+        return (int) (mezcla ^ (mezcla >>> 32)) & mascara;
+    }
+}
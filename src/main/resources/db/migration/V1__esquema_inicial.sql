@@ -0,0 +1,49 @@
+-- Esquema inicial del microservicio de proveedores y facturación.
+-- Usa IF NOT EXISTS para poder aplicarse sobre bases creadas antes con ddl-auto: update
+-- (se registran con baseline en la versión 0 y este script completa lo que falte).
+
+create sequence if not exists facturas_seq start with 1 increment by 50;
+create sequence if not exists pedidos_referencias_seq start with 1 increment by 50;
+create sequence if not exists trabajos_facturas_seq start with 1 increment by 50;
+
+create table if not exists proveedores (
+    id             bigserial primary key,
+    nombre         varchar(255) not null,
+    correo         varchar(255) not null unique,
+    fecha_registro timestamp(6)
+);
+
+create table if not exists facturas (
+    id            bigint primary key,
+    proveedor_id  bigint not null,
+    total_factura numeric(10, 2) not null,
+    fecha_factura timestamp(6),
+    estado        varchar(255) not null check (estado in ('PENDIENTE', 'PAGADA', 'CANCELADA'))
+);
+
+create table if not exists pedidos_referencias (
+    id         bigint primary key,
+    pedido_id  bigint not null,
+    total      numeric(10, 2) not null,
+    factura_id bigint not null references facturas (id)
+);
+
+create table if not exists trabajos_facturas (
+    id                  bigint primary key,
+    entrada             text not null,
+    estado              varchar(20) not null,
+    intentos            integer not null,
+    factura_id          bigint,
+    error               varchar(1000),
+    fecha_creacion      timestamp(6) not null,
+    fecha_actualizacion timestamp(6) not null
+);
+
+create table if not exists resumen_proveedores (
+    proveedor_id        bigint primary key,
+    cantidad_facturas   bigint not null,
+    total_facturado     numeric(14, 2) not null,
+    monto_pendiente     numeric(14, 2) not null,
+    monto_pagado        numeric(14, 2) not null,
+    fecha_actualizacion timestamp(6) not null
+);
@@ -0,0 +1,36 @@
+-- Índices para las consultas de los repositorios.
+
+-- Listado por proveedor (keyset por fecha e ID) y findByProveedorId. Incluye el resto de
+-- columnas de la factura para resolver los listados sin detalle con un index-only scan.
+create index if not exists idx_facturas_proveedor_fecha
+    on facturas (proveedor_id, fecha_factura desc, id desc) include (total_factura, estado);
+
+-- Listado general, de la más reciente a la más antigua.
+create index if not exists idx_facturas_fecha
+    on facturas (fecha_factura desc, id desc);
+
+-- findByEstado, en el mismo orden que los listados.
+create index if not exists idx_facturas_estado
+    on facturas (estado, fecha_factura desc, id desc);
+
+-- Carga por lotes de los pedidos de cada factura (where factura_id in (...)), cubierta.
+create index if not exists idx_pedidos_referencias_factura
+    on pedidos_referencias (factura_id) include (pedido_id, total);
+
+-- Búsqueda de facturas por pedido referenciado.
+create index if not exists idx_pedidos_referencias_pedido
+    on pedidos_referencias (pedido_id);
+
+-- Cola de facturas asíncronas: trabajos pendientes en orden de llegada.
+create index if not exists idx_trabajos_facturas_estado
+    on trabajos_facturas (estado, id);
+
+-- Hibernate reserva IDs en bloques de 50 y toma el valor de la secuencia como el último del
+-- bloque, así que la secuencia debe quedar al menos 50 por encima del mayor ID existente
+-- (bases que venían de columnas IDENTITY o con bloques ya reservados).
+select setval('facturas_seq',
+    greatest((select case when is_called then last_value else 0 end from facturas_seq), (select coalesce(max(id), 0) from facturas)) + 50, false);
+select setval('pedidos_referencias_seq',
+    greatest((select case when is_called then last_value else 0 end from pedidos_referencias_seq), (select coalesce(max(id), 0) from pedidos_referencias)) + 50, false);
+select setval('trabajos_facturas_seq',
+    greatest((select case when is_called then last_value else 0 end from trabajos_facturas_seq), (select coalesce(max(id), 0) from trabajos_facturas)) + 50, false);
@@ -0,0 +1,18 @@
+-- Un pedido solo puede figurar en una factura. El índice único reemplaza al índice simple
+-- sobre pedido_id y resuelve igual la búsqueda de facturas por pedido.
+
+do $$
+declare
+    repetidos bigint;
+begin
+    select count(*) into repetidos
+    from (select pedido_id from pedidos_referencias group by pedido_id having count(*) > 1) r;
+    if repetidos > 0 then
+        raise exception 'Hay % pedidos facturados más de una vez; deben corregirse antes de aplicar esta migración', repetidos;
+    end if;
+end $$;
+
+create unique index if not exists uk_pedidos_referencias_pedido
+    on pedidos_referencias (pedido_id);
+
+drop index if exists idx_pedidos_referencias_pedido;
@@ -0,0 +1,2 @@
+-- Columna de versión para el bloqueo optimista de los cambios de estado de facturas.
+alter table facturas add column if not exists version bigint not null default 0;
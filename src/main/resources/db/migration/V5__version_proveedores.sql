@@ -0,0 +1,2 @@
+-- Columna de versión de proveedores; junto con la de facturas respalda los ETag de las lecturas.
+alter table proveedores add column if not exists version bigint not null default 0;
@@ -0,0 +1,151 @@
+-- Facturas y referencias de pedidos particionadas por mes de fecha_factura.
+--
+-- Las consultas por fecha solo recorren las particiones del rango pedido y las particiones
+-- antiguas se separan sin DELETE masivos (ParticionesFacturas). En una tabla particionada un
+-- índice único debe incluir la clave de partición, así que la regla de que un pedido se factura
+-- una sola vez pasa a la tabla pedidos_facturados, que no se particiona ni se archiva.
+
+create table if not exists pedidos_facturados (
+    pedido_id  bigint primary key,
+    factura_id bigint not null
+);
+
+insert into pedidos_facturados (pedido_id, factura_id)
+select pedido_id, factura_id from pedidos_referencias
+on conflict (pedido_id) do nothing;
+
+-- Crea las particiones mensuales de facturas y pedidos_referencias que falten entre los meses
+-- de las fechas indicadas, ambos incluidos. Las filas del mes que hayan caído en las particiones
+-- por defecto pasan a la nueva partición. Devuelve la cantidad de meses agregados.
+create or replace function crear_particiones_facturas(desde date, hasta date) returns integer
+language plpgsql as $$
+declare
+    mes date := date_trunc('month', desde)::date;
+    fin date;
+    sufijo text;
+    nueva_referencias boolean;
+    creadas integer := 0;
+begin
+    -- Serializa instancias que crean particiones al mismo tiempo
+    perform pg_advisory_xact_lock(hashtext('particiones_facturas'));
+    while mes <= hasta loop
+        sufijo := to_char(mes, 'YYYY_MM');
+        fin := (mes + interval '1 month')::date;
+        -- Cada partición se crea suelta, recibe las filas del mes que estén en la partición por
+        -- defecto y recién entonces se adjunta: adjuntarla con esas filas en la de defecto falla.
+        -- Las referencias salen antes que las facturas a las que apuntan y se adjuntan después.
+        nueva_referencias := to_regclass('pedidos_referencias_' || sufijo) is null;
+        if nueva_referencias then
+            execute format('create table %I (like pedidos_referencias including defaults including constraints)',
+                    'pedidos_referencias_' || sufijo);
+            execute format('with movidas as (delete from pedidos_referencias_default '
+                    || 'where fecha_factura >= %L and fecha_factura < %L returning *) '
+                    || 'insert into %I select * from movidas', mes, fin, 'pedidos_referencias_' || sufijo);
+        end if;
+        if to_regclass('facturas_' || sufijo) is null then
+            execute format('create table %I (like facturas including defaults including constraints)',
+                    'facturas_' || sufijo);
+            execute format('with movidas as (delete from facturas_default '
+                    || 'where fecha_factura >= %L and fecha_factura < %L returning *) '
+                    || 'insert into %I select * from movidas', mes, fin, 'facturas_' || sufijo);
+            execute format('alter table facturas attach partition %I for values from (%L) to (%L)',
+                    'facturas_' || sufijo, mes, fin);
+            creadas := creadas + 1;
+        end if;
+        if nueva_referencias then
+            execute format('alter table pedidos_referencias attach partition %I for values from (%L) to (%L)',
+                    'pedidos_referencias_' || sufijo, mes, fin);
+        end if;
+        mes := fin;
+    end loop;
+    return creadas;
+end $$;
+
+-- Separa las particiones de un mes de facturas y pedidos_referencias. Con esquema_archivo las
+-- mueve a ese esquema; sin él las elimina. Devuelve el nombre de la partición de facturas.
+create or replace function archivar_particion_facturas(mes date, esquema_archivo text) returns text
+language plpgsql as $$
+declare
+    sufijo text := to_char(mes, 'YYYY_MM');
+    particion_facturas text := 'facturas_' || sufijo;
+    particion_referencias text := 'pedidos_referencias_' || sufijo;
+    restriccion record;
+begin
+    perform pg_advisory_xact_lock(hashtext('particiones_facturas'));
+    execute format('alter table pedidos_referencias detach partition %I', particion_referencias);
+    -- La clave foránea queda en la tabla separada y seguiría apuntando a facturas
+    for restriccion in
+        select conname from pg_constraint where conrelid = to_regclass(particion_referencias) and contype = 'f'
+    loop
+        execute format('alter table %I drop constraint %I', particion_referencias, restriccion.conname);
+    end loop;
+    execute format('alter table facturas detach partition %I', particion_facturas);
+    if esquema_archivo is null then
+        execute format('drop table %I, %I', particion_referencias, particion_facturas);
+    else
+        execute format('create schema if not exists %I', esquema_archivo);
+        execute format('alter table %I set schema %I', particion_referencias, esquema_archivo);
+        execute format('alter table %I set schema %I', particion_facturas, esquema_archivo);
+    end if;
+    return particion_facturas;
+end $$;
+
+alter table pedidos_referencias rename to pedidos_referencias_sin_particionar;
+alter table facturas rename to facturas_sin_particionar;
+
+create table facturas (
+    id            bigint not null,
+    proveedor_id  bigint not null,
+    total_factura numeric(10, 2) not null,
+    fecha_factura timestamp(6) not null,
+    estado        varchar(255) not null check (estado in ('PENDIENTE', 'PAGADA', 'CANCELADA')),
+    version       bigint not null default 0
+) partition by range (fecha_factura);
+
+create table pedidos_referencias (
+    id            bigint not null,
+    pedido_id     bigint not null,
+    total         numeric(10, 2) not null,
+    factura_id    bigint not null,
+    fecha_factura timestamp(6) not null
+) partition by range (fecha_factura);
+
+-- Las altas de un mes sin partición, si el mantenimiento no corrió a tiempo, caen en estas
+-- particiones en lugar de rechazarse; crear_particiones_facturas las mueve al crear el mes.
+create table facturas_default partition of facturas default;
+create table pedidos_referencias_default partition of pedidos_referencias default;
+
+-- Particiones desde la factura más antigua hasta tres meses adelante
+select crear_particiones_facturas(
+    coalesce((select min(fecha_factura)::date from facturas_sin_particionar), current_date),
+    greatest((select max(fecha_factura)::date from facturas_sin_particionar), (current_date + interval '3 months')::date));
+
+-- Las facturas sin fecha, anteriores a que se registrara, quedan en el mes de la migración
+insert into facturas (id, proveedor_id, total_factura, fecha_factura, estado, version)
+select id, proveedor_id, total_factura, coalesce(fecha_factura, localtimestamp), estado, version
+from facturas_sin_particionar;
+
+insert into pedidos_referencias (id, pedido_id, total, factura_id, fecha_factura)
+select r.id, r.pedido_id, r.total, r.factura_id, f.fecha_factura
+from pedidos_referencias_sin_particionar r
+join facturas f on f.id = r.factura_id;
+
+drop table pedidos_referencias_sin_particionar;
+drop table facturas_sin_particionar;
+
+-- Claves e índices después de copiar los datos; los nombres de índice se liberan con el drop
+alter table facturas add constraint facturas_pkey primary key (id, fecha_factura);
+alter table pedidos_referencias add constraint pedidos_referencias_pkey primary key (id, fecha_factura);
+alter table pedidos_referencias add constraint fk_pedidos_referencias_factura
+    foreign key (factura_id, fecha_factura) references facturas (id, fecha_factura);
+
+create index idx_facturas_proveedor_fecha
+    on facturas (proveedor_id, fecha_factura desc, id desc) include (total_factura, estado);
+create index idx_facturas_fecha
+    on facturas (fecha_factura desc, id desc);
+create index idx_facturas_estado
+    on facturas (estado, fecha_factura desc, id desc);
+create index idx_pedidos_referencias_factura
+    on pedidos_referencias (factura_id) include (pedido_id, total);
+
+create schema if not exists facturacion_archivo;
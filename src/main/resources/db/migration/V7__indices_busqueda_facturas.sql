@@ -0,0 +1,25 @@
+-- Índices para la búsqueda de facturas con filtros opcionales (GET /api/facturas/buscar).
+--
+-- Cada índice empieza por las columnas de igualdad de un filtro (proveedor, estado o ninguna),
+-- sigue por el orden de la búsqueda (fecha_factura desc, id desc) y termina con las columnas
+-- que se filtran por rango. Como son columnas clave y no incluidas, las condiciones sobre
+-- estado y total se evalúan en el índice y solo se leen de la tabla las facturas que cumplen
+-- todos los filtros. Los tres reemplazan a los de V6 con las mismas columnas iniciales, por lo
+-- que siguen sirviendo a los listados por proveedor, estado y fecha.
+
+drop index if exists idx_facturas_proveedor_fecha;
+create index idx_facturas_proveedor_fecha
+    on facturas (proveedor_id, fecha_factura desc, id desc, estado, total_factura);
+
+drop index if exists idx_facturas_estado;
+create index idx_facturas_estado
+    on facturas (estado, fecha_factura desc, id desc, total_factura);
+
+drop index if exists idx_facturas_fecha;
+create index idx_facturas_fecha
+    on facturas (fecha_factura desc, id desc, total_factura);
+
+-- Búsquedas por un total o un rango de totales poco frecuente, sin otros filtros: el
+-- planificador elige este índice y ordena las pocas facturas que encuentra.
+create index if not exists idx_facturas_total
+    on facturas (total_factura);
@@ -0,0 +1,3 @@
+-- Purga de la cola de facturas asíncronas: trabajos completados o fallidos por antigüedad.
+create index if not exists idx_trabajos_facturas_estado_actualizacion
+    on trabajos_facturas (estado, fecha_actualizacion);
@@ -0,0 +1,75 @@
+package com.multipedidos.proveedores.client;
+
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Consultas de muchos pedidos cuando el microservicio A falla o responde lento.
+ *
+ * Si la capa de resiliencia rechaza cada llamada en el mismo hilo (circuito abierto), todos los
+ * pedidos se consultan y terminan en errores sin desbordar la pila: un desborde lo absorbe el
+ * futuro y los pedidos restantes solo llegarían a errores al vencer el plazo total, sin haberse
+ * consultado. Si el endpoint masivo no está disponible, las consultas individuales que lo
+ * reemplazan respetan el mismo plazo total.
+ */
+class PedidosClientTest {
+
+    private static final int PEDIDOS = 10_000;
+    private static final long DEMORA_MS = 50;
+    private static final long PLAZO_TOTAL_MS = 120;
+
+    @Test
+    void circuitoAbiertoDejaTodosLosPedidosEnErrores() {
+        PedidosTransporte transporte = mock(PedidosTransporte.class);
+        when(transporte.soportaLote()).thenReturn(false);
+        PedidosResiliencia resiliencia = mock(PedidosResiliencia.class);
+        CallNotPermittedException rechazo =
+                CallNotPermittedException.createCallNotPermittedException(CircuitBreaker.ofDefaults("pedidos"));
+        when(resiliencia.ejecutar(any())).thenAnswer(invocacion -> CompletableFuture.failedFuture(rechazo));
+        PedidosClient client = new PedidosClient(transporte, new PedidosCache(100, 300, 30), resiliencia,
+                new SimpleMeterRegistry(), true, 16, 5000, 100);
+        List<Long> ids = LongStream.rangeClosed(1, PEDIDOS).boxed().toList();
+
+        ResultadoPedidos resultado = client.obtenerPedidos(ids);
+
+        assertThat(resultado.getErrores()).containsExactlyInAnyOrderElementsOf(ids);
+        assertThat(resultado.getEncontrados()).isEmpty();
+        assertThat(resultado.getFaltantes()).isEmpty();
+        verify(resiliencia, times(PEDIDOS)).ejecutar(any());
+    }
+
+    @Test
+    void loteNoDisponibleNoLanzaConsultasIndividualesDespuesDelPlazo() throws InterruptedException {
+        PedidosTransporte transporte = mock(PedidosTransporte.class);
+        when(transporte.soportaLote()).thenReturn(true);
+        PedidosResiliencia resiliencia = mock(PedidosResiliencia.class);
+        AtomicInteger llamadas = new AtomicInteger();
+        when(resiliencia.ejecutar(any())).thenAnswer(invocacion -> llamadas.getAndIncrement() == 0
+                ? CompletableFuture.failedFuture(new PedidosTransporte.LoteNoDisponibleException("sin lote"))
+                : new CompletableFuture<>().completeOnTimeout(null, DEMORA_MS, TimeUnit.MILLISECONDS));
+        PedidosClient client = new PedidosClient(transporte, new PedidosCache(100, 300, 30), resiliencia,
+                new SimpleMeterRegistry(), false, 1, PLAZO_TOTAL_MS, 100);
+
+        ResultadoPedidos resultado = client.obtenerPedidos(LongStream.rangeClosed(1, 100).boxed().toList());
+        int alVencer = llamadas.get();
+        Thread.sleep(4 * DEMORA_MS);
+
+        assertThat(resultado.getErrores()).isNotEmpty();
+        assertThat(llamadas.get()).isLessThanOrEqualTo(alVencer + 1);
+    }
+}
@@ -0,0 +1,109 @@
+package com.multipedidos.proveedores.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.MapConfigurationPropertySource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Ruteo de transacciones entre dos bases locales independientes, un primario y una réplica en
+ * H2 en memoria, armado como en {@link ReplicasConfig}. El retraso de la réplica se lee de una
+ * tabla propia mediante {@code consultaRetraso}, ya que H2 no tiene las funciones de PostgreSQL.
+ */
+class RuteoReplicasTest {
+
+    private RuteoReplicas ruteoReplicas;
+    private JdbcTemplate primario;
+    private JdbcTemplate replica;
+    private JdbcTemplate ruteado;
+    private TransactionTemplate lectura;
+    private TransactionTemplate escritura;
+
+    @BeforeEach
+    void crearBases() {
+        String urlPrimario = "jdbc:h2:mem:ruteo-primario;DB_CLOSE_DELAY=-1";
+        String urlReplica = "jdbc:h2:mem:ruteo-replica;DB_CLOSE_DELAY=-1";
+        primario = new JdbcTemplate(new DriverManagerDataSource(urlPrimario, "sa", ""));
+        replica = new JdbcTemplate(new DriverManagerDataSource(urlReplica, "sa", ""));
+        for (JdbcTemplate base : List.of(primario, replica)) {
+            base.execute("create table base (nombre varchar(20))");
+            base.execute("create table retraso (ms bigint)");
+            base.execute("insert into retraso values (0)");
+        }
+        primario.update("insert into base values ('primario')");
+        replica.update("insert into base values ('replica')");
+
+        HikariDataSource poolPrimario = new HikariDataSource();
+        poolPrimario.setJdbcUrl(urlPrimario);
+        poolPrimario.setUsername("sa");
+        poolPrimario.setPassword("");
+        poolPrimario.setDriverClassName("org.h2.Driver");
+        poolPrimario.setPoolName("primario");
+        ReplicasConfig.Propiedades propiedades = new ReplicasConfig.Propiedades(true, 1000L, 3_600_000L,
+                "select ms from retraso", List.of(new ReplicasConfig.Instancia("replica", urlReplica, null, null)));
+        Binder binder = new Binder(new MapConfigurationPropertySource(Map.of("replicas.hikari.maximum-pool-size", "2")));
+        ruteoReplicas = new RuteoReplicas(poolPrimario, propiedades, binder, new SimpleMeterRegistry());
+
+        DataSource dataSource = new LazyConnectionDataSourceProxy(ruteoReplicas.getDataSourceRuteado());
+        ruteado = new JdbcTemplate(dataSource);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        escritura = new TransactionTemplate(transactionManager);
+        lectura = new TransactionTemplate(transactionManager);
+        lectura.setReadOnly(true);
+    }
+
+    @AfterEach
+    void cerrar() {
+        ruteoReplicas.close();
+        primario.execute("drop all objects");
+        replica.execute("drop all objects");
+    }
+
+    @Test
+    void lasLecturasVanALaReplicaYLasEscriturasAlPrimario() {
+        assertThat(leerEn(lectura)).isEqualTo("replica");
+        assertThat(leerEn(escritura)).isEqualTo("primario");
+        assertThat(leerBase()).isEqualTo("primario");
+    }
+
+    @Test
+    void unaReplicaAtrasadaDejaDeRecibirLecturasHastaPonerseAlDia() {
+        replica.update("update retraso set ms = 5000");
+        ruteoReplicas.verificarRetraso();
+        assertThat(leerEn(lectura)).isEqualTo("primario");
+
+        replica.update("update retraso set ms = 10");
+        ruteoReplicas.verificarRetraso();
+        assertThat(leerEn(lectura)).isEqualTo("replica");
+    }
+
+    @Test
+    void unaReplicaQueNoRespondeLaVerificacionPasaLasLecturasAlPrimario() {
+        replica.execute("drop table retraso");
+        ruteoReplicas.verificarRetraso();
+
+        assertThat(leerEn(lectura)).isEqualTo("primario");
+    }
+
+    private String leerEn(TransactionTemplate transaccion) {
+        return transaccion.execute(estado -> leerBase());
+    }
+
+    private String leerBase() {
+        return ruteado.queryForObject("select nombre from base", String.class);
+    }
+}
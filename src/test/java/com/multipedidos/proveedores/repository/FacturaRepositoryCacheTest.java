@@ -0,0 +1,109 @@
+package com.multipedidos.proveedores.repository;
+
+import com.multipedidos.proveedores.config.CacheSegundoNivelConfig;
+import com.multipedidos.proveedores.model.Factura;
+import com.multipedidos.proveedores.model.PedidoReferencia;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Lecturas de facturas por ID servidas por la caché de segundo nivel. Cada lectura usa su propia
+ * transacción, como las peticiones, para que no la resuelva el contexto de persistencia.
+ */
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@ActiveProfiles("dev")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(CacheSegundoNivelConfig.class)
+class FacturaRepositoryCacheTest {
+
+    @Autowired
+    private FacturaRepository facturaRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private Statistics estadisticas;
+    private Long facturaId;
+
+    @BeforeEach
+    void crearFactura() {
+        facturaId = transactionTemplate.execute(estado -> {
+            Factura factura = Factura.builder()
+                    .proveedorId(1L)
+                    .totalFactura(new BigDecimal("30.00"))
+                    .build();
+            for (long pedidoId = 1; pedidoId <= 3; pedidoId++) {
+                factura.agregarPedido(PedidoReferencia.builder()
+                        .pedidoId(pedidoId)
+                        .total(new BigDecimal("10.00"))
+                        .build());
+            }
+            return facturaRepository.save(factura).getId();
+        });
+        SessionFactory sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        sessionFactory.getCache().evictAllRegions();
+        estadisticas = sessionFactory.getStatistics();
+        estadisticas.clear();
+    }
+
+    @AfterEach
+    void borrarFacturas() {
+        transactionTemplate.executeWithoutResult(estado -> facturaRepository.deleteAll());
+    }
+
+    @Test
+    void laSegundaLecturaPorIdNoConsultaLaBase() {
+        leerConPedidos();
+        long sentenciasPrimeraLectura = estadisticas.getPrepareStatementCount();
+
+        Factura factura = leerConPedidos();
+
+        assertThat(sentenciasPrimeraLectura).isEqualTo(2);
+        assertThat(estadisticas.getPrepareStatementCount()).isEqualTo(sentenciasPrimeraLectura);
+        assertThat(factura.getPedidos()).hasSize(3);
+        assertThat(estadisticas.getDomainDataRegionStatistics("facturas").getHitCount()).isEqualTo(1);
+        assertThat(estadisticas.getDomainDataRegionStatistics("facturas-pedidos").getHitCount()).isEqualTo(1);
+    }
+
+    @Test
+    void unCambioDeEstadoInvalidaLaEntradaDeLaFactura() {
+        leerConPedidos();
+        transactionTemplate.executeWithoutResult(estado -> facturaRepository.findById(facturaId)
+                .orElseThrow()
+                .setEstado(Factura.EstadoFactura.PAGADA));
+        estadisticas.clear();
+
+        Factura factura = transactionTemplate.execute(estado -> facturaRepository.findById(facturaId).orElseThrow());
+
+        assertThat(factura.getEstado()).isEqualTo(Factura.EstadoFactura.PAGADA);
+        assertThat(factura.getVersion()).isEqualTo(1L);
+    }
+
+    private Factura leerConPedidos() {
+        return transactionTemplate.execute(estado -> {
+            Factura factura = facturaRepository.findById(facturaId).orElseThrow();
+            factura.getPedidos().size();
+            return factura;
+        });
+    }
+}
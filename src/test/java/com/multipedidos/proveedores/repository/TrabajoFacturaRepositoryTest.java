@@ -0,0 +1,98 @@
+package com.multipedidos.proveedores.repository;
+
+import com.multipedidos.proveedores.model.TrabajoFactura;
+import com.multipedidos.proveedores.model.TrabajoFactura.EstadoTrabajo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Cierres de trabajos por un worker que ya no los tiene en proceso, por ejemplo porque el trabajo
+ * volvió a la cola por lento y otro worker lo completó: no pisan el estado actual.
+ */
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@ActiveProfiles("dev")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class TrabajoFacturaRepositoryTest {
+
+    private static final int MAX_INTENTOS = 3;
+
+    @Autowired
+    private TrabajoFacturaRepository trabajoFacturaRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @AfterEach
+    void borrarTrabajos() {
+        trabajoFacturaRepository.deleteAll();
+    }
+
+    @Test
+    void unFalloNoPisaUnTrabajoCompletadoPorOtroWorker() {
+        Long id = guardar(EstadoTrabajo.EN_PROCESO, 2);
+
+        assertThat(completar(id, 7L)).isEqualTo(1);
+        assertThat(registrarFallo(id, 0)).isZero();
+
+        TrabajoFactura trabajo = trabajoFacturaRepository.findById(id).orElseThrow();
+        assertThat(trabajo.getEstado()).isEqualTo(EstadoTrabajo.COMPLETADO);
+        assertThat(trabajo.getFacturaId()).isEqualTo(7L);
+        assertThat(trabajo.getError()).isNull();
+    }
+
+    @Test
+    void noSeCompletaUnTrabajoQueVolvioALaCola() {
+        Long id = guardar(EstadoTrabajo.PENDIENTE, 1);
+
+        assertThat(completar(id, 7L)).isZero();
+
+        TrabajoFactura trabajo = trabajoFacturaRepository.findById(id).orElseThrow();
+        assertThat(trabajo.getEstado()).isEqualTo(EstadoTrabajo.PENDIENTE);
+        assertThat(trabajo.getFacturaId()).isNull();
+    }
+
+    @Test
+    void unFalloEnProcesoReintentaHastaAgotarLosIntentos() {
+        Long reintentable = guardar(EstadoTrabajo.EN_PROCESO, MAX_INTENTOS - 1);
+        Long agotado = guardar(EstadoTrabajo.EN_PROCESO, MAX_INTENTOS);
+
+        assertThat(registrarFallo(reintentable, MAX_INTENTOS)).isEqualTo(1);
+        assertThat(registrarFallo(agotado, MAX_INTENTOS)).isEqualTo(1);
+
+        assertThat(trabajoFacturaRepository.findById(reintentable).orElseThrow().getEstado())
+                .isEqualTo(EstadoTrabajo.PENDIENTE);
+        assertThat(trabajoFacturaRepository.findById(agotado).orElseThrow().getEstado())
+                .isEqualTo(EstadoTrabajo.FALLIDO);
+    }
+
+    private Long guardar(EstadoTrabajo estado, int intentos) {
+        return trabajoFacturaRepository.save(TrabajoFactura.builder()
+                .entrada("{}")
+                .estado(estado)
+                .intentos(intentos)
+                .build()).getId();
+    }
+
+    private int completar(Long id, Long facturaId) {
+        return transactionTemplate.execute(estado -> trabajoFacturaRepository.completar(id,
+                EstadoTrabajo.EN_PROCESO, EstadoTrabajo.COMPLETADO, facturaId, LocalDateTime.now()));
+    }
+
+    private int registrarFallo(Long id, int maxIntentos) {
+        return transactionTemplate.execute(estado -> trabajoFacturaRepository.registrarFallo(id,
+                EstadoTrabajo.EN_PROCESO, EstadoTrabajo.PENDIENTE, EstadoTrabajo.FALLIDO, maxIntentos,
+                "Alguno de los pedidos ya fue facturado", LocalDateTime.now()));
+    }
+}
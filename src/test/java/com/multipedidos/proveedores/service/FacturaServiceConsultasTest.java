@@ -0,0 +1,190 @@
+package com.multipedidos.proveedores.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.multipedidos.common.exceptions.RecursoNoEncontradoException;
+import com.multipedidos.proveedores.client.PedidosClient;
+import com.multipedidos.proveedores.config.CacheSegundoNivelConfig;
+import com.multipedidos.proveedores.dto.FacturaDTO;
+import com.multipedidos.proveedores.dto.PaginaDTO;
+import com.multipedidos.proveedores.model.Factura;
+import com.multipedidos.proveedores.model.PedidoReferencia;
+import com.multipedidos.proveedores.repository.FacturaRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Consultas de facturas: los pedidos de una página se cargan por lotes y no con una consulta por
+ * factura, la lectura por ID no devuelve una versión desactualizada por la caché de segundo nivel
+ * y las facturas anteriores a la ventana de retención no se devuelven.
+ *
+ * <p>Los datos se confirman en su propia transacción: {@link PedidoReferencia} es de solo lectura
+ * en la caché de segundo nivel y Hibernate no admite releerla en la transacción que la insertó.
+ */
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@ActiveProfiles("dev")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({FacturaService.class, RetencionFacturas.class, CacheSegundoNivelConfig.class})
+class FacturaServiceConsultasTest {
+
+    private static final int FACTURAS = 30;
+    private static final int PEDIDOS_POR_FACTURA = 3;
+
+    @Autowired
+    private FacturaService facturaService;
+
+    @Autowired
+    private FacturaRepository facturaRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @MockBean
+    private ProveedorService proveedorService;
+
+    @MockBean
+    private ResumenProveedorService resumenProveedorService;
+
+    @MockBean
+    private PedidosFacturados pedidosFacturados;
+
+    @MockBean
+    private PedidosClient pedidosClient;
+
+    @MockBean
+    private ObjectMapper objectMapper;
+
+    @MockBean
+    private MeterRegistry meterRegistry;
+
+    private Statistics estadisticas;
+
+    @BeforeEach
+    void crearFacturas() {
+        transactionTemplate.executeWithoutResult(estado -> guardarFacturas());
+        SessionFactory sessionFactory = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class);
+        // Las lecturas deben llegar a la base y no resolverse desde la caché de segundo nivel
+        sessionFactory.getCache().evictAllRegions();
+        estadisticas = sessionFactory.getStatistics();
+        estadisticas.clear();
+    }
+
+    @AfterEach
+    void borrarFacturas() {
+        transactionTemplate.executeWithoutResult(estado -> facturaRepository.deleteAll());
+    }
+
+    private void guardarFacturas() {
+        for (int i = 0; i < FACTURAS; i++) {
+            Factura factura = Factura.builder()
+                    .proveedorId(1L + i % 3)
+                    .totalFactura(new BigDecimal("30.00"))
+                    .build();
+            for (int j = 0; j < PEDIDOS_POR_FACTURA; j++) {
+                factura.agregarPedido(PedidoReferencia.builder()
+                        .pedidoId((long) i * PEDIDOS_POR_FACTURA + j + 1)
+                        .total(new BigDecimal("10.00"))
+                        .build());
+            }
+            facturaRepository.save(factura);
+        }
+    }
+
+    @Test
+    void listarConDetalleCargaLosPedidosDeLaPaginaEnUnaSolaConsulta() {
+        PaginaDTO<FacturaDTO> pagina = facturaService.listarFacturas(null, 20, true);
+
+        assertThat(pagina.getItems()).hasSize(20)
+                .allSatisfy(factura -> assertThat(factura.getPedidos()).hasSize(PEDIDOS_POR_FACTURA));
+        // Página de facturas + pedidos de toda la página
+        assertThat(estadisticas.getPrepareStatementCount()).isEqualTo(2);
+    }
+
+    @Test
+    void listarSinDetalleNoConsultaLosPedidos() {
+        PaginaDTO<FacturaDTO> pagina = facturaService.listarFacturas(null, 20, false);
+
+        assertThat(pagina.getItems()).hasSize(20)
+                .allSatisfy(factura -> assertThat(factura.getPedidos()).isNull());
+        assertThat(estadisticas.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void listarPorProveedorConDetalleNoCreceConLaCantidadDeFacturas() {
+        PaginaDTO<FacturaDTO> pagina = facturaService.listarFacturasPorProveedor(1L, null, 50, true);
+
+        assertThat(pagina.getItems()).hasSize(FACTURAS / 3);
+        assertThat(estadisticas.getPrepareStatementCount()).isEqualTo(2);
+    }
+
+    @Test
+    void obtenerFacturaNoUsaLaVersionDesactualizadaDeLaCache() {
+        Long id = facturaService.listarFacturas(null, 1, false).getItems().get(0).getId();
+        facturaService.obtenerFactura(id, 0L);
+        // Cambio hecho por otra instancia: no pasa por Hibernate ni invalida la caché local
+        jdbcTemplate.update("update facturas set estado = 'PAGADA', version = version + 1 where id = ?", id);
+
+        Long version = facturaService.obtenerVersion(id);
+        FacturaDTO factura = facturaService.obtenerFactura(id, version);
+
+        assertThat(version).isEqualTo(1L);
+        assertThat(factura.getVersion()).isEqualTo(1L);
+        assertThat(factura.getEstado()).isEqualTo(Factura.EstadoFactura.PAGADA);
+        assertThat(factura.getPedidos()).hasSize(PEDIDOS_POR_FACTURA);
+    }
+
+    @Test
+    void obtenerFacturaYaLeidaNoConsultaLaBase() {
+        Long id = facturaService.listarFacturas(null, 1, false).getItems().get(0).getId();
+        entityManager.getEntityManagerFactory().getCache().evictAll();
+        facturaService.obtenerFactura(id, 0L);
+        estadisticas.clear();
+
+        FacturaDTO factura = facturaService.obtenerFactura(id, 0L);
+
+        assertThat(factura.getPedidos()).hasSize(PEDIDOS_POR_FACTURA);
+        assertThat(estadisticas.getPrepareStatementCount()).isZero();
+    }
+
+    @Test
+    void unaFacturaAnteriorALaRetencionNoSeEncuentra() {
+        Long id = facturaService.listarFacturas(null, 1, false).getItems().get(0).getId();
+        jdbcTemplate.update("update facturas set fecha_factura = ? where id = ?", LocalDateTime.now().minusYears(3), id);
+        entityManager.getEntityManagerFactory().getCache().evictAll();
+
+        assertThatThrownBy(() -> facturaService.obtenerFactura(id, 0L))
+                .isInstanceOf(RecursoNoEncontradoException.class);
+        assertThatThrownBy(() -> facturaService.obtenerVersion(id))
+                .isInstanceOf(RecursoNoEncontradoException.class);
+        assertThat(facturaService.listarFacturas(null, FACTURAS, false).getItems())
+                .hasSize(FACTURAS - 1)
+                .noneMatch(factura -> factura.getId().equals(id));
+    }
+}
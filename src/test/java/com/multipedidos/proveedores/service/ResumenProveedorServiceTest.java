@@ -0,0 +1,101 @@
+package com.multipedidos.proveedores.service;
+
+import com.multipedidos.proveedores.model.Factura;
+import com.multipedidos.proveedores.model.ResumenProveedor;
+import com.multipedidos.proveedores.repository.ResumenProveedorRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Acumulados por proveedor cuando el resumen todavía no existe: facturas concurrentes del mismo
+ * proveedor lo crean una sola vez y ninguna variación se pierde.
+ */
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@ActiveProfiles("dev")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(ResumenProveedorService.class)
+class ResumenProveedorServiceTest {
+
+    private static final long PROVEEDOR = 42L;
+    private static final int FACTURAS = 8;
+
+    @Autowired
+    private ResumenProveedorService resumenProveedorService;
+
+    @Autowired
+    private ResumenProveedorRepository resumenProveedorRepository;
+
+    @AfterEach
+    void borrarResumenes() {
+        resumenProveedorRepository.deleteAll();
+    }
+
+    @Test
+    void facturasConcurrentesSinResumenSumanTodasLasVariaciones() {
+        ExecutorService hilos = Executors.newFixedThreadPool(FACTURAS);
+        CountDownLatch largada = new CountDownLatch(1);
+        try {
+            List<CompletableFuture<Void>> registros = IntStream.range(0, FACTURAS)
+                    .mapToObj(i -> CompletableFuture.runAsync(() -> {
+                        esperar(largada);
+                        resumenProveedorService.registrarFactura(factura(new BigDecimal("10.00")));
+                    }, hilos))
+                    .toList();
+            largada.countDown();
+            registros.forEach(CompletableFuture::join);
+        } finally {
+            hilos.shutdownNow();
+        }
+
+        ResumenProveedor resumen = resumenProveedorRepository.findById(PROVEEDOR).orElseThrow();
+        assertThat(resumen.getCantidadFacturas()).isEqualTo(FACTURAS);
+        assertThat(resumen.getTotalFacturado()).isEqualByComparingTo(new BigDecimal("80.00"));
+        assertThat(resumen.getMontoPendiente()).isEqualByComparingTo(new BigDecimal("80.00"));
+    }
+
+    @Test
+    void unaFacturaConResumenExistenteSoloLoActualiza() {
+        resumenProveedorService.crearResumen(PROVEEDOR);
+
+        resumenProveedorService.registrarFactura(factura(new BigDecimal("25.50")));
+
+        ResumenProveedor resumen = resumenProveedorRepository.findById(PROVEEDOR).orElseThrow();
+        assertThat(resumen.getCantidadFacturas()).isEqualTo(1);
+        assertThat(resumen.getTotalFacturado()).isEqualByComparingTo(new BigDecimal("25.50"));
+    }
+
+    private static Factura factura(BigDecimal total) {
+        return Factura.builder()
+                .proveedorId(PROVEEDOR)
+                .totalFactura(total)
+                .estado(Factura.EstadoFactura.PENDIENTE)
+                .build();
+    }
+
+    private static void esperar(CountDownLatch largada) {
+        try {
+            largada.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}